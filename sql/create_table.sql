@@ -19,7 +19,8 @@ create table if not exists user
     updateTime   datetime     default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
     isDelete     tinyint      default 0                 not null comment '是否删除',
     UNIQUE KEY uk_userAccount (userAccount),
-    INDEX idx_userName (userName)
+    INDEX idx_userName (userName),
+    INDEX idx_createTime (createTime) -- 支撑按创建时间排序
     ) comment '用户' collate = utf8mb4_unicode_ci;
 
 -- 应用表
@@ -38,23 +39,67 @@ create table app
     createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
     updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
     isDelete     tinyint  default 0                 not null comment '是否删除',
+    cleanedTime  datetime                           null comment '删除后关联数据清理完成时间',
     UNIQUE KEY uk_deployKey (deployKey), -- 确保部署标识唯一
     INDEX idx_appName (appName),         -- 提升基于应用名称的查询性能
-    INDEX idx_userId (userId)            -- 提升基于用户 ID 的查询性能
+    INDEX idx_userId_createTime (userId, createTime), -- 提升基于用户 ID 的查询性能，并支撑"我的应用"按创建时间排序
+    INDEX idx_createTime (createTime),   -- 支撑按创建时间排序
+    INDEX idx_priority (priority),       -- 支撑精选应用查询和按优先级排序
+    INDEX idx_isDelete_cleanedTime (isDelete, cleanedTime), -- 查找未完成清理的已删除应用
+    FULLTEXT INDEX ft_app_search (appName, initPrompt) WITH PARSER ngram -- 应用名称和提示词全文检索（支持中文）
 ) comment '应用' collate = utf8mb4_unicode_ci;
 
+-- 已有 app 表添加全文索引（只需执行一次）
+-- alter table app add fulltext index ft_app_search (appName, initPrompt) with parser ngram;
+
+-- 已有 app 表添加清理完成标记（只需执行一次），已删除但未标记的应用会由清理任务补做清理
+-- alter table app add column cleanedTime datetime null comment '删除后关联数据清理完成时间',
+--     add index idx_isDelete_cleanedTime (isDelete, cleanedTime);
+
+-- 排序字段索引（只需执行一次），允许排序的字段见各服务中的 SortFieldPlanner
+-- alter table user add index idx_createTime (createTime);
+-- alter table app drop index idx_userId, add index idx_userId_createTime (userId, createTime),
+--     add index idx_createTime (createTime), add index idx_priority (priority);
+
 -- 对话历史表
+-- 按 createTime 做范围分区，分区键必须包含在主键中；冷数据由归档任务迁移到磁盘压缩文件
 create table chat_history
 (
-    id          bigint auto_increment comment 'id' primary key,
-    message     text                               not null comment '消息',
+    id          bigint auto_increment comment 'id',
+    message     text                               null comment '消息',
+    messageZip  mediumblob                         null comment '压缩后的消息',
+    messageCodec tinyint default 0                 not null comment '消息编码：0-明文 1-deflate',
     messageType varchar(32)                        not null comment 'user/ai',
     appId       bigint                             not null comment '应用id',
     userId      bigint                             not null comment '创建用户id',
     createTime  datetime default CURRENT_TIMESTAMP not null comment '创建时间',
     updateTime  datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
     isDelete    tinyint  default 0                 not null comment '是否删除',
+    PRIMARY KEY (id, createTime),
     INDEX idx_appId (appId),                       -- 提升基于应用的查询性能
     INDEX idx_createTime (createTime),             -- 提升基于时间的查询性能
     INDEX idx_appId_createTime (appId, createTime) -- 游标查询核心索引
-) comment '对话历史' collate = utf8mb4_unicode_ci;
+) comment '对话历史' collate = utf8mb4_unicode_ci
+    partition by range columns (createTime) (
+        partition p202607 values less than ('2026-08-01'),
+        partition p202608 values less than ('2026-09-01'),
+        partition p202609 values less than ('2026-10-01'),
+        partition p202610 values less than ('2026-11-01'),
+        partition p202611 values less than ('2026-12-01'),
+        partition p202612 values less than ('2027-01-01'),
+        partition pmax values less than (MAXVALUE)
+    );
+
+-- 已有的未分区 chat_history 表迁移（只需执行一次）
+-- alter table chat_history drop primary key, add primary key (id, createTime);
+-- alter table chat_history partition by range columns (createTime) (
+--     partition p202610 values less than ('2026-11-01'),
+--     partition pmax values less than (MAXVALUE)
+-- );
+-- 之后的月度分区由 ChatHistoryArchiveJob 自动从 pmax 中拆分
+
+-- 大消息压缩存储迁移（只需执行一次）
+-- alter table chat_history
+--     modify message text null comment '消息',
+--     add column messageZip mediumblob null comment '压缩后的消息' after message,
+--     add column messageCodec tinyint default 0 not null comment '消息编码：0-明文 1-deflate' after messageZip;
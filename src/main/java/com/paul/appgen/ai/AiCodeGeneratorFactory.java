@@ -1,29 +1,36 @@
 package com.paul.appgen.ai;
 
-import com.esotericsoftware.minlog.Log;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.paul.appgen.ai.tools.*;
+import com.paul.appgen.ai.memory.ChatMemoryHydrator;
+import com.paul.appgen.ai.memory.PrefixStableChatMemory;
+import com.paul.appgen.ai.prompt.PromptRegistry;
+import com.paul.appgen.ai.router.ModelRouterRegistry;
+import com.paul.appgen.ai.router.RoutingStreamingChatModel;
+import com.paul.appgen.ai.tools.ToolManager;
 import com.paul.appgen.exception.BusinessException;
 import com.paul.appgen.exception.ErrorCode;
 import com.paul.appgen.model.enums.CodeGenTypeEnum;
-import com.paul.appgen.service.ChatHistoryService;
+import com.paul.appgen.model.enums.ModelTierEnum;
 import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
-import dev.langchain4j.service.MemoryId;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Bean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
 
-import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Ai服务创建工厂
+ * 每种代码生成类型、每个模型档位只在启动时构建一个无状态的 AI 服务实例，
+ * 对话记忆通过 chatMemoryProvider 按 @MemoryId（appId）从 Redis 获取
  */
 @Configuration
 @Slf4j
@@ -39,50 +46,78 @@ public class AiCodeGeneratorFactory {
     private StreamingChatModel openAiStreamingChatModel;
 
     @Resource
-    private ChatHistoryService chatHistoryService;
+    private ChatMemoryHydrator chatMemoryHydrator;
 
     @Resource
     private StreamingChatModel reasoningStreamingChatModel;
 
-    private final Cache<String, AiCodeGeneratorService> serviceCache = Caffeine.newBuilder()
-            .maximumSize(1000)
-            .expireAfterWrite(Duration.ofMinutes(30))
-            .expireAfterAccess(Duration.ofMinutes(10))
-            .removalListener((key, value, cause) -> {
-                log.debug("AI 服务实例被移除！缓存键:{},原因:{}", key, cause);
-            })
-            .build();
-
-    private AiCodeGeneratorService createAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        log.info("创建AI服务实例，appId:{}", appId);
-        // 创建基于Redis的聊天记忆实例，设置最大消息数为20
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory
-                .builder()
-                .id(appId) // 使用传入的appId作为聊天记忆的ID
-                .chatMemoryStore(redisChatMemoryStore) // 设置Redis作为聊天记忆存储
-                .maxMessages(20) // 设置最大保留的消息数量
-                .build();
-        // 构建并返回AI代码生成服务实例，配置聊天模型、流式聊天模型和聊天记忆
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
+    @Resource
+    private ToolManager toolManager;
+
+    @Resource
+    private PromptRegistry promptRegistry;
+
+    /**
+     * 开启多服务商路由（app.model-router.enabled）时存在
+     */
+    @Resource
+    private ObjectProvider<ModelRouterRegistry> modelRouterRegistryProvider;
+
+    /**
+     * 开启模型分档（app.model-tier.enabled）时存在
+     */
+    @Autowired(required = false)
+    @Qualifier("fastStreamingChatModel")
+    private StreamingChatModel fastStreamingChatModel;
+
+    /**
+     * 代码生成类型、模型档位到 AI 服务实例的映射，启动时构建完成
+     */
+    private final Map<CodeGenTypeEnum, Map<ModelTierEnum, AiCodeGeneratorService>> serviceMap = new EnumMap<>(CodeGenTypeEnum.class);
+
+    /**
+     * 启动时为每种代码生成类型预先构建 AI 服务，工具规格也只在这里解析一次
+     */
+    @PostConstruct
+    public void initServices() {
+        // 所有服务共享同一个记忆提供者，按 appId 从 Redis 读取记忆
+        // 按块淘汰、固定系统消息和最早几条消息，保持请求前缀稳定以命中服务商的前缀缓存
+        ChatMemoryProvider chatMemoryProvider = memoryId -> PrefixStableChatMemory.create(memoryId, redisChatMemoryStore);
+        int serviceCount = 0;
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            Map<ModelTierEnum, AiCodeGeneratorService> tierServices = new EnumMap<>(ModelTierEnum.class);
+            StreamingChatModel strongModel = codeGenType == CodeGenTypeEnum.VUE_PROJECT
+                    ? routedOr(ModelRouterRegistry.GROUP_VUE, reasoningStreamingChatModel)
+                    : routedOr(ModelRouterRegistry.GROUP_CODE, openAiStreamingChatModel);
+            tierServices.put(ModelTierEnum.STRONG, createAiCodeGeneratorService(codeGenType, strongModel, chatMemoryProvider));
+            // 未配置快速模型时所有请求都使用强模型
+            if (fastStreamingChatModel != null) {
+                tierServices.put(ModelTierEnum.FAST, createAiCodeGeneratorService(codeGenType, fastStreamingChatModel, chatMemoryProvider));
+            }
+            serviceMap.put(codeGenType, tierServices);
+            serviceCount += tierServices.size();
+        }
+        log.info("AI 服务初始化完成，共构建 {} 个服务实例", serviceCount);
+    }
+
+    private AiCodeGeneratorService createAiCodeGeneratorService(CodeGenTypeEnum codeGenType, StreamingChatModel streamingChatModel,
+                                                                ChatMemoryProvider chatMemoryProvider) {
+        log.info("创建AI服务实例，codeGenType:{}", codeGenType.getValue());
         return switch (codeGenType) {
             case HTML, MULTI_FILE -> AiServices.builder(AiCodeGeneratorService.class)
                     .chatModel(chatModel) // 设置常规聊天模型
-                    .streamingChatModel(openAiStreamingChatModel) // 设置流式聊天模型
-                    .chatMemory(chatMemory) // 设置聊天记忆
+                    .systemMessageProvider(memoryId -> promptRegistry.getSystemPrompt(codeGenType).text())
+                    .streamingChatModel(streamingChatModel) // 设置流式聊天模型
+                    .chatMemoryProvider(chatMemoryProvider) // 设置聊天记忆提供者
                     .build();
 
             case VUE_PROJECT -> AiServices.builder(AiCodeGeneratorService.class)
                     .chatModel(chatModel) // 设置常规聊天模型
-                    .streamingChatModel(reasoningStreamingChatModel) // 设置流式聊天模型
-                    .chatMemoryProvider(memoryId -> chatMemory)
-                    .tools(
-                            new FileWriteTool(),
-                            new FileDeleteTool(),
-                            new FileReadTool(),
-                            new FileDirReadTool(),
-                            new FileModifyTool(),
-                            new ExitTool()
-                    )
+                    .systemMessageProvider(memoryId -> promptRegistry.getSystemPrompt(codeGenType).text())
+                    .streamingChatModel(streamingChatModel) // 设置流式聊天模型
+                    .chatMemoryProvider(chatMemoryProvider)
+                    // 复用 Spring 管理的工具实例，工具通过 @ToolMemoryId 区分应用
+                    .tools((Object[]) toolManager.getAllTools())
                     //处理工具调用幻觉问题
                     .hallucinatedToolNameStrategy(toolExecutionRequest ->
                             ToolExecutionResultMessage
@@ -93,15 +128,54 @@ public class AiCodeGeneratorFactory {
 
     }
 
+    /**
+     * 开启多服务商路由且配置了该分组时走分组的路由模型，否则使用原有的单一服务商模型
+     */
+    private StreamingChatModel routedOr(String group, StreamingChatModel defaultModel) {
+        ModelRouterRegistry modelRouterRegistry = modelRouterRegistryProvider.getIfAvailable();
+        RoutingStreamingChatModel routingStreamingChatModel = modelRouterRegistry == null ? null : modelRouterRegistry.get(group);
+        return routingStreamingChatModel != null ? routingStreamingChatModel : defaultModel;
+    }
+
+    /**
+     * 淘汰各服务中该应用的记忆实例
+     * 服务会按 appId 常驻缓存记忆实例（包括本轮的临时上下文），一次生成结束后移除，下次从 Redis 重新读取
+     *
+     * @param appId 应用ID
+     */
+    public void evictChatMemory(long appId) {
+        serviceMap.values().forEach(tierServices -> tierServices.values()
+                .forEach(aiCodeGeneratorService -> aiCodeGeneratorService.evictChatMemory(appId)));
+    }
+
     /**
      * 根据appId获取Ai代码生成器服务
+     * 服务实例按类型共享，这里只负责确保该应用的 Redis 记忆已就绪
      *
      * @param appId
      * @return
      */
-    public AiCodeGeneratorService getAiCodeGeneratorService(long appId,CodeGenTypeEnum codeGenType) {
-        String cacheKey = buildCacheKey(appId, codeGenType);
-        return serviceCache.get(cacheKey, key -> createAiCodeGeneratorService(appId, codeGenType));
+    public AiCodeGeneratorService getAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
+        return getAiCodeGeneratorService(appId, codeGenType, ModelTierEnum.STRONG);
+    }
+
+    /**
+     * 根据appId和模型档位获取Ai代码生成器服务，该档位没有对应服务时使用强模型
+     *
+     * @param appId       应用ID
+     * @param codeGenType 生成类型
+     * @param modelTier   模型档位
+     * @return Ai代码生成器服务
+     */
+    public AiCodeGeneratorService getAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType, ModelTierEnum modelTier) {
+        Map<ModelTierEnum, AiCodeGeneratorService> tierServices = serviceMap.get(codeGenType);
+        if (tierServices == null) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型" + codeGenType.getValue());
+        }
+        AiCodeGeneratorService aiCodeGeneratorService = tierServices.getOrDefault(modelTier, tierServices.get(ModelTierEnum.STRONG));
+        // 仅当记忆需要回填时才等待，保证本次对话能读到完整的历史
+        chatMemoryHydrator.ensureHydrated(appId);
+        return aiCodeGeneratorService;
     }
 
     /**
@@ -115,9 +189,4 @@ public class AiCodeGeneratorFactory {
     }
 
 
-    private String buildCacheKey(long appId, CodeGenTypeEnum codeGenType) {
-        return appId + "_" + codeGenType.getValue();
-    }
-
-
 }
@@ -3,53 +3,55 @@ package com.paul.appgen.ai;
 import com.paul.appgen.ai.model.HtmlCodeResult;
 import com.paul.appgen.ai.model.MultiFileCodeResult;
 import dev.langchain4j.service.MemoryId;
-import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import reactor.core.publisher.Flux;
 
-public interface AiCodeGeneratorService {
+/**
+ * 服务实例按生成类型共享，实现 ChatMemoryAccess 以便生成结束后淘汰该应用的记忆实例（Redis 中的记忆保留）
+ */
+public interface AiCodeGeneratorService extends ChatMemoryAccess {
 
 
 /**
  * 生成HTML代码的方法
- * 该方法使用系统提示文件来指导代码生成
+ * 系统提示词由 PromptRegistry 提供
+ * @param appId 应用ID，作为对话记忆的ID
  * @param userMessage 用户输入的消息，作为生成HTML代码的依据
  * @return HtmlCodeResult 包含生成HTML代码的结果对象
  */
-    @SystemMessage(value = "prompt/codegen-html-system-prompt.txt")
-    HtmlCodeResult generateHtmlCode(@UserMessage String userMessage);
+    HtmlCodeResult generateHtmlCode(@MemoryId Long appId, @UserMessage String userMessage);
 
     /**
      * 生成多文件代码
+     * @param appId 应用ID，作为对话记忆的ID
      * @param userMessage 用户输入
      * @return AI的输出结果
      * @param userMessage
      * @return
      */
-    @SystemMessage(value = "prompt/codegen-multi-file-system-prompt.txt")
-    MultiFileCodeResult generateMultiFileCode(String userMessage);
+    MultiFileCodeResult generateMultiFileCode(@MemoryId Long appId, @UserMessage String userMessage);
 
     /**
      * 生成HTML代码
+     * @param appId 应用ID，作为对话记忆的ID
      * @param userMessage 用户输入
      * @return AI的输出结果
      * @param userMessage
      * @return
      */
-    @SystemMessage(value = "prompt/codegen-html-system-prompt.txt")
-    Flux<String> generateHtmlCodeStream(String userMessage);
+    Flux<String> generateHtmlCodeStream(@MemoryId Long appId, @UserMessage String userMessage);
 
     /**
      * 生成多文件代码
+     * @param appId 应用ID，作为对话记忆的ID
      * @param userMessage 用户输入
      * @return AI的输出结果
      * @param userMessage
      * @return
      */
-    @SystemMessage(value = "prompt/codegen-multi-file-system-prompt.txt")
-    Flux<String> generateMultiFileCodeStream(String userMessage);
+    Flux<String> generateMultiFileCodeStream(@MemoryId Long appId, @UserMessage String userMessage);
 
-    @SystemMessage(value = "prompt/codegen-vue-system-prompt.txt")
     TokenStream generateVueProjectCodeStream(@MemoryId Long appId, @UserMessage String userMessage);
 }
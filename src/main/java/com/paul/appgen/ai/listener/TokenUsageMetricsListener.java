@@ -0,0 +1,55 @@
+package com.paul.appgen.ai.listener;
+
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 模型 token 用量指标
+ * 记录输入、输出 token 数，以及命中服务商前缀缓存的输入 token 数（ai.tokens.input.cached），
+ * 命中率 = cached / input，可通过管理端口的 /actuator/metrics 查看
+ */
+@Slf4j
+@Component
+public class TokenUsageMetricsListener implements ChatModelListener {
+
+    private static final String METRIC_INPUT_TOKENS = "ai.tokens.input";
+
+    private static final String METRIC_CACHED_INPUT_TOKENS = "ai.tokens.input.cached";
+
+    private static final String METRIC_OUTPUT_TOKENS = "ai.tokens.output";
+
+    private static final String TAG_MODEL = "model";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        ChatResponse chatResponse = responseContext.chatResponse();
+        TokenUsage tokenUsage = chatResponse.tokenUsage();
+        if (tokenUsage == null) {
+            return;
+        }
+        String modelName = String.valueOf(chatResponse.modelName());
+        int inputTokens = nullToZero(tokenUsage.inputTokenCount());
+        int cachedTokens = 0;
+        if (tokenUsage instanceof OpenAiTokenUsage openAiTokenUsage && openAiTokenUsage.inputTokensDetails() != null) {
+            cachedTokens = nullToZero(openAiTokenUsage.inputTokensDetails().cachedTokens());
+        }
+        meterRegistry.counter(METRIC_INPUT_TOKENS, TAG_MODEL, modelName).increment(inputTokens);
+        meterRegistry.counter(METRIC_CACHED_INPUT_TOKENS, TAG_MODEL, modelName).increment(cachedTokens);
+        meterRegistry.counter(METRIC_OUTPUT_TOKENS, TAG_MODEL, modelName).increment(nullToZero(tokenUsage.outputTokenCount()));
+        log.debug("模型 {} 输入 {} token，其中命中缓存 {} token", modelName, inputTokens, cachedTokens);
+    }
+
+    private int nullToZero(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
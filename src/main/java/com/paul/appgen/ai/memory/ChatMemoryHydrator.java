@@ -0,0 +1,171 @@
+package com.paul.appgen.ai.memory;
+
+import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paul.appgen.service.ChatHistoryService;
+import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.memory.ChatMemory;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 对话记忆水合器
+ * 按需把 MySQL 中的对话历史回填到 Redis 对话记忆：
+ * 只有 Redis 记忆缺失，或记忆的版本戳落后于对话历史的版本戳时才重建，并且在虚拟线程中异步执行
+ */
+@Slf4j
+@Component
+public class ChatMemoryHydrator {
+
+    /**
+     * 回填到记忆中的最大消息数
+     */
+    public static final int MAX_MEMORY_MESSAGES = 20;
+
+    /**
+     * 对话历史版本戳（对话历史发生非对话流程的变更时递增，例如被删除）
+     */
+    private static final String HISTORY_VERSION_KEY_PREFIX = "chat_history:version:";
+
+    /**
+     * 当前 Redis 记忆对应的对话历史版本戳
+     */
+    private static final String MEMORY_VERSION_KEY_PREFIX = "chat_memory:version:";
+
+    /**
+     * 版本戳过期时间，过期后会重新比对一次
+     */
+    private static final Duration VERSION_TTL = Duration.ofDays(1);
+
+    /**
+     * 首次请求等待水合完成的最长时间
+     */
+    private static final long AWAIT_TIMEOUT_SECONDS = 10;
+
+    @Resource
+    private RedisChatMemoryStore redisChatMemoryStore;
+
+    @Resource
+    private ChatHistoryService chatHistoryService;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 正在进行中的水合任务，同一个应用同一时间只会有一个
+     */
+    private final Map<Long, CompletableFuture<Integer>> inFlightTasks = new ConcurrentHashMap<>();
+
+    /**
+     * 最近已检查过的应用及其水合任务，过期前不再重复比对版本戳
+     */
+    private final Cache<Long, CompletableFuture<Integer>> recentlyCheckedApps = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    private final ExecutorService hydrateExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 确保对话记忆可用
+     * 近期未检查过的应用会触发一次异步检查，只有存在进行中的水合任务时才会等待
+     *
+     * @param appId 应用ID
+     */
+    public void ensureHydrated(long appId) {
+        // 已完成的任务会立即返回，不会阻塞
+        awaitHydration(appId, recentlyCheckedApps.get(appId, this::hydrateAsync));
+    }
+
+    /**
+     * 异步检查并水合对话记忆
+     *
+     * @param appId 应用ID
+     * @return 水合任务，结果为回填的消息数（未重建时为 0）
+     */
+    public CompletableFuture<Integer> hydrateAsync(long appId) {
+        CompletableFuture<Integer> future = inFlightTasks.computeIfAbsent(appId,
+                id -> CompletableFuture.supplyAsync(() -> hydrateIfStale(id), hydrateExecutor));
+        future.whenComplete((count, error) -> inFlightTasks.remove(appId, future));
+        return future;
+    }
+
+    /**
+     * 如果该应用有进行中的水合任务，则等待其完成；没有则立即返回
+     *
+     * @param appId 应用ID
+     */
+    public void awaitHydration(long appId) {
+        CompletableFuture<Integer> future = inFlightTasks.get(appId);
+        if (future == null) {
+            return;
+        }
+        awaitHydration(appId, future);
+    }
+
+    private void awaitHydration(long appId, CompletableFuture<Integer> future) {
+        try {
+            future.get(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("等待 appId:{} 的对话记忆水合超时，继续处理请求", appId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 失败的任务不缓存，下次请求重新检查
+            recentlyCheckedApps.invalidate(appId);
+            log.error("appId:{} 的对话记忆水合失败", appId, e);
+        }
+    }
+
+    /**
+     * 标记对话历史已变更，下次使用时需要重建 Redis 记忆
+     *
+     * @param appId 应用ID
+     */
+    public void markStale(long appId) {
+        recentlyCheckedApps.invalidate(appId);
+        try {
+            String key = HISTORY_VERSION_KEY_PREFIX + appId;
+            stringRedisTemplate.opsForValue().increment(key);
+            stringRedisTemplate.expire(key, VERSION_TTL);
+        } catch (Exception e) {
+            log.error("更新 appId:{} 的对话历史版本戳失败", appId, e);
+        }
+    }
+
+    /**
+     * 仅在 Redis 记忆缺失或版本戳不一致时，从数据库重建记忆
+     */
+    private int hydrateIfStale(long appId) {
+        String historyVersion = StrUtil.blankToDefault(
+                stringRedisTemplate.opsForValue().get(HISTORY_VERSION_KEY_PREFIX + appId), "0");
+        String memoryVersion = stringRedisTemplate.opsForValue().get(MEMORY_VERSION_KEY_PREFIX + appId);
+        boolean memoryMissing = redisChatMemoryStore.getMessages(appId).isEmpty();
+        if (!memoryMissing && historyVersion.equals(memoryVersion)) {
+            log.debug("appId:{} 的对话记忆已是最新，无需重建", appId);
+            return 0;
+        }
+        ChatMemory chatMemory = PrefixStableChatMemory.create(appId, redisChatMemoryStore);
+        int loadedCount = chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, MAX_MEMORY_MESSAGES);
+        stringRedisTemplate.opsForValue().set(MEMORY_VERSION_KEY_PREFIX + appId, historyVersion, VERSION_TTL);
+        return loadedCount;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        hydrateExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,185 @@
+package com.paul.appgen.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 前缀稳定的对话记忆
+ * 模型服务商会对与最近请求前缀相同的部分命中 KV 缓存（更便宜、更快），
+ * MessageWindowChatMemory 每轮淘汰一条最早的消息，导致每次请求的前缀都在变化。这里改为：
+ * 1. 系统消息和最早的几条消息（通常是首轮需求和首次生成结果）固定保留
+ * 2. 超过上限时一次性淘汰固定消息之后的一整块消息，两次淘汰之间请求前缀保持不变
+ * 3. 用户消息中 {@link #TRANSIENT_CONTEXT_MARKER} 之后的内容（如参考实现）只在本轮请求中发送，不写入记忆
+ */
+public class PrefixStableChatMemory implements ChatMemory {
+
+    /**
+     * 固定保留的最早消息数（不含系统消息）
+     */
+    public static final int DEFAULT_PINNED_MESSAGES = 2;
+
+    /**
+     * 每次淘汰的消息数
+     */
+    public static final int DEFAULT_EVICT_BLOCK_SIZE = 8;
+
+    /**
+     * 本轮临时上下文的分隔标记，模型能看到，写入记忆时连同之后的内容一起去掉
+     */
+    public static final String TRANSIENT_CONTEXT_MARKER = "\n\n【本轮参考资料】\n";
+
+    private final Object id;
+
+    private final ChatMemoryStore chatMemoryStore;
+
+    private final int maxMessages;
+
+    private final int pinnedMessages;
+
+    private final int evictBlockSize;
+
+    /**
+     * 本轮带临时上下文的完整用户消息和写入记忆的版本，下一条用户消息到来时清除
+     */
+    private UserMessage transientMessage;
+
+    private UserMessage persistedMessage;
+
+    public PrefixStableChatMemory(Object id, ChatMemoryStore chatMemoryStore, int maxMessages,
+                                  int pinnedMessages, int evictBlockSize) {
+        if (pinnedMessages + evictBlockSize > maxMessages) {
+            throw new IllegalArgumentException("固定消息数与淘汰块大小之和不能超过最大消息数");
+        }
+        this.id = id;
+        this.chatMemoryStore = chatMemoryStore;
+        this.maxMessages = maxMessages;
+        this.pinnedMessages = pinnedMessages;
+        this.evictBlockSize = evictBlockSize;
+    }
+
+    /**
+     * 使用默认的固定消息数和淘汰块大小创建对话记忆
+     *
+     * @param id              记忆ID（appId）
+     * @param chatMemoryStore 记忆存储
+     * @return 对话记忆
+     */
+    public static PrefixStableChatMemory create(Object id, ChatMemoryStore chatMemoryStore) {
+        return new PrefixStableChatMemory(id, chatMemoryStore, ChatMemoryHydrator.MAX_MEMORY_MESSAGES,
+                DEFAULT_PINNED_MESSAGES, DEFAULT_EVICT_BLOCK_SIZE);
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    /**
+     * 把临时上下文附加到用户消息后，只在本轮请求中发送
+     *
+     * @param userMessage 用户消息
+     * @param context     临时上下文
+     * @return 带临时上下文的用户消息
+     */
+    public static String withTransientContext(String userMessage, String context) {
+        return userMessage + TRANSIENT_CONTEXT_MARKER + context;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        if (message instanceof UserMessage userMessage) {
+            message = stripTransientContext(userMessage);
+        }
+        List<ChatMessage> messages = new ArrayList<>(chatMemoryStore.getMessages(id));
+        if (message instanceof SystemMessage) {
+            // 系统消息始终在第一位，内容相同时不重复写入
+            if (!messages.isEmpty() && messages.getFirst() instanceof SystemMessage) {
+                if (messages.getFirst().equals(message)) {
+                    return;
+                }
+                messages.set(0, message);
+            } else {
+                messages.addFirst(message);
+            }
+        } else {
+            messages.add(message);
+        }
+        evictIfNeeded(messages);
+        chatMemoryStore.updateMessages(id, messages);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(chatMemoryStore.getMessages(id));
+        evictIfNeeded(messages);
+        // 本轮（包括工具调用的后续请求）发送完整的用户消息
+        if (transientMessage != null) {
+            int index = messages.lastIndexOf(persistedMessage);
+            if (index >= 0) {
+                messages.set(index, transientMessage);
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public void clear() {
+        transientMessage = null;
+        persistedMessage = null;
+        chatMemoryStore.deleteMessages(id);
+    }
+
+    /**
+     * 记录本轮的完整用户消息，返回去掉临时上下文后写入记忆的消息
+     */
+    private UserMessage stripTransientContext(UserMessage userMessage) {
+        transientMessage = null;
+        persistedMessage = null;
+        if (!userMessage.hasSingleText()) {
+            return userMessage;
+        }
+        String text = userMessage.singleText();
+        int markerIndex = text.indexOf(TRANSIENT_CONTEXT_MARKER);
+        if (markerIndex < 0) {
+            return userMessage;
+        }
+        String persistedText = text.substring(0, markerIndex);
+        transientMessage = userMessage;
+        persistedMessage = userMessage.name() == null
+                ? UserMessage.from(persistedText)
+                : UserMessage.from(userMessage.name(), persistedText);
+        return persistedMessage;
+    }
+
+    /**
+     * 超过上限时淘汰固定消息之后的一整块，并移除块后孤立的工具执行结果（其工具调用请求已被淘汰）
+     */
+    private void evictIfNeeded(List<ChatMessage> messages) {
+        int offset = !messages.isEmpty() && messages.getFirst() instanceof SystemMessage ? 1 : 0;
+        if (messages.size() - offset <= maxMessages) {
+            return;
+        }
+        int pinnedEnd = Math.min(offset + pinnedMessages, messages.size());
+        // 固定区域不能把工具调用和它的执行结果拆开
+        while (pinnedEnd < messages.size() && messages.get(pinnedEnd) instanceof ToolExecutionResultMessage) {
+            pinnedEnd++;
+        }
+        while (messages.size() - offset > maxMessages) {
+            int blockEnd = Math.min(pinnedEnd + evictBlockSize, messages.size());
+            if (blockEnd == pinnedEnd) {
+                return;
+            }
+            messages.subList(pinnedEnd, blockEnd).clear();
+            while (pinnedEnd < messages.size() && messages.get(pinnedEnd) instanceof ToolExecutionResultMessage) {
+                messages.remove(pinnedEnd);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.paul.appgen.ai.prompt;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.NoResourceException;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.paul.appgen.config.PromptConfig;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 提示词注册表
+ * 启动时加载并校验全部系统提示词，缺少文件或内容为空时直接启动失败；
+ * AI 服务通过 systemMessageProvider 从这里读取提示词，不再依赖注解中的资源路径。
+ * 配置 app.prompt.reload-dir 后定时检查该目录中的同名文件，修改后整体替换，无需重启
+ */
+@Slf4j
+@Component
+public class PromptRegistry {
+
+    private static final String PROMPT_RESOURCE_DIR = "prompt/";
+
+    /**
+     * 各生成类型的系统提示词文件
+     */
+    private static final Map<CodeGenTypeEnum, String> SYSTEM_PROMPT_FILES = Map.of(
+            CodeGenTypeEnum.HTML, "codegen-html-system-prompt.txt",
+            CodeGenTypeEnum.MULTI_FILE, "codegen-multi-file-system-prompt.txt",
+            CodeGenTypeEnum.VUE_PROJECT, "codegen-vue-project-system-prompt.txt"
+    );
+
+    @Resource
+    private PromptConfig promptConfig;
+
+    /**
+     * 只用于估算提示词长度，各家模型分词略有差异
+     */
+    private final TokenCountEstimator tokenCountEstimator = new OpenAiTokenCountEstimator(OpenAiChatModelName.GPT_4_O);
+
+    /**
+     * 文件名 -> 提示词，整体替换
+     */
+    private volatile Map<String, PromptEntry> promptMap = Map.of();
+
+    /**
+     * 热加载目录中已加载文件的修改时间
+     */
+    private final Map<String, Long> reloadedFileTimes = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Map<String, PromptEntry> loadedPromptMap = new HashMap<>();
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            String fileName = SYSTEM_PROMPT_FILES.get(codeGenType);
+            if (fileName == null) {
+                throw new IllegalStateException("生成类型 " + codeGenType.getValue() + " 没有配置系统提示词");
+            }
+            String text;
+            try {
+                text = ResourceUtil.readUtf8Str(PROMPT_RESOURCE_DIR + fileName);
+            } catch (NoResourceException e) {
+                throw new IllegalStateException("缺少提示词文件：" + PROMPT_RESOURCE_DIR + fileName, e);
+            }
+            if (StrUtil.isBlank(text)) {
+                throw new IllegalStateException("提示词文件内容为空：" + PROMPT_RESOURCE_DIR + fileName);
+            }
+            loadedPromptMap.put(fileName, createEntry(fileName, text));
+        }
+        promptMap = Map.copyOf(loadedPromptMap);
+        promptMap.values().forEach(entry ->
+                log.info("加载提示词 {}，{} 字符，约 {} token", entry.name(), entry.text().length(), entry.tokenCount()));
+        reloadFromDir();
+    }
+
+    /**
+     * 获取生成类型的系统提示词
+     *
+     * @param codeGenType 生成类型
+     * @return 系统提示词
+     */
+    public PromptEntry getSystemPrompt(CodeGenTypeEnum codeGenType) {
+        return promptMap.get(SYSTEM_PROMPT_FILES.get(codeGenType));
+    }
+
+    /**
+     * 定时检查热加载目录，内容为空的文件忽略，继续使用原提示词
+     */
+    @Scheduled(fixedDelay = 5000, initialDelay = 5000)
+    public synchronized void reloadFromDir() {
+        String reloadDir = promptConfig.getReloadDir();
+        if (StrUtil.isBlank(reloadDir)) {
+            return;
+        }
+        Map<String, PromptEntry> reloadedPromptMap = null;
+        for (String fileName : SYSTEM_PROMPT_FILES.values()) {
+            File file = new File(reloadDir, fileName);
+            if (!file.isFile() || Long.valueOf(file.lastModified()).equals(reloadedFileTimes.get(fileName))) {
+                continue;
+            }
+            reloadedFileTimes.put(fileName, file.lastModified());
+            String text = FileUtil.readUtf8String(file);
+            if (StrUtil.isBlank(text)) {
+                log.warn("热加载的提示词 {} 内容为空，已忽略", file.getAbsolutePath());
+                continue;
+            }
+            if (reloadedPromptMap == null) {
+                reloadedPromptMap = new HashMap<>(promptMap);
+            }
+            PromptEntry entry = createEntry(fileName, text);
+            reloadedPromptMap.put(fileName, entry);
+            log.info("热加载提示词 {}，{} 字符，约 {} token", fileName, text.length(), entry.tokenCount());
+        }
+        if (reloadedPromptMap != null) {
+            promptMap = Map.copyOf(reloadedPromptMap);
+        }
+    }
+
+    private PromptEntry createEntry(String name, String text) {
+        // 相同内容共享同一个字符串实例
+        String internedText = text.intern();
+        return new PromptEntry(name, internedText, SecureUtil.sha256(internedText),
+                tokenCountEstimator.estimateTokenCountInText(internedText));
+    }
+
+    /**
+     * 提示词
+     *
+     * @param name       文件名
+     * @param text       内容
+     * @param hash       内容哈希，内容变化时用于失效相关缓存
+     * @param tokenCount 估算的 token 数
+     */
+    public record PromptEntry(String name, String text, String hash, int tokenCount) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.paul.appgen.ai.router;
+
+import java.util.Map;
+
+/**
+ * 按分组管理路由模型
+ * 不同生成类型使用不同的模型和成本，每个分组有独立的服务商列表、统计和对冲配置
+ */
+public class ModelRouterRegistry {
+
+    /**
+     * HTML 和多文件生成
+     */
+    public static final String GROUP_CODE = "code";
+
+    /**
+     * Vue 工程生成（推理模型 + 工具调用，单次请求成本高）
+     */
+    public static final String GROUP_VUE = "vue";
+
+    private final Map<String, RoutingStreamingChatModel> routers;
+
+    public ModelRouterRegistry(Map<String, RoutingStreamingChatModel> routers) {
+        this.routers = Map.copyOf(routers);
+    }
+
+    /**
+     * 获取分组的路由模型
+     *
+     * @param group 分组名
+     * @return 路由模型，分组未配置时返回 null
+     */
+    public RoutingStreamingChatModel get(String group) {
+        return routers.get(group);
+    }
+
+    public void shutdown() {
+        routers.values().forEach(RoutingStreamingChatModel::shutdown);
+    }
+}
@@ -0,0 +1,339 @@
+package com.paul.appgen.ai.router;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 多服务商路由的流式模型
+ * 1. 按每个服务商的首 token 耗时（EWMA）和错误率（EWMA）排序，新请求优先发给最快的健康服务商
+ * 2. 超过对冲阈值仍未收到首 token 时向下一个服务商发起对冲请求，先返回首 token 的请求胜出（未配置阈值时不对冲）
+ * 3. 收到首 token 前失败时切换到下一个服务商；收到首 token 后失败时内容已输出给调用方，只能返回错误，
+ * 错误会计入统计，同一会话的下一次请求自动路由到其他服务商
+ * 4. 错误率超过上限的服务商冷却一段时间，冷却期间只在没有其他可用服务商时使用
+ */
+@Slf4j
+public class RoutingStreamingChatModel implements StreamingChatModel {
+
+    private final List<EndpointState> endpointStates;
+
+    private final Duration hedgeDelay;
+
+    private final double ewmaAlpha;
+
+    private final double maxErrorRate;
+
+    private final Duration cooldown;
+
+    private final ScheduledExecutorService hedgeScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("model-router-hedge").factory());
+
+    /**
+     * @param endpoints    服务商
+     * @param hedgeDelay   对冲阈值，为 null 时不对冲，只在失败时切换
+     * @param ewmaAlpha    EWMA 平滑系数，越大越看重最近的请求
+     * @param maxErrorRate 错误率上限，超过后进入冷却
+     * @param cooldown     冷却时间
+     */
+    public RoutingStreamingChatModel(List<RoutedEndpoint> endpoints, Duration hedgeDelay, double ewmaAlpha,
+                                     double maxErrorRate, Duration cooldown) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个模型服务商");
+        }
+        this.endpointStates = endpoints.stream().map(EndpointState::new).toList();
+        this.hedgeDelay = hedgeDelay;
+        this.ewmaAlpha = ewmaAlpha;
+        this.maxErrorRate = maxErrorRate;
+        this.cooldown = cooldown;
+    }
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        new RoutedRequest(chatRequest, handler, rankEndpoints()).start();
+    }
+
+    /**
+     * 服务商统计快照，按路由顺序排列
+     *
+     * @return 统计快照
+     */
+    public List<EndpointSnapshot> snapshot() {
+        return rankEndpoints().stream().map(EndpointState::snapshot).toList();
+    }
+
+    public void shutdown() {
+        hedgeScheduler.shutdownNow();
+    }
+
+    /**
+     * 可用的服务商在前，按（首 token 耗时 / 成功率）升序；还没有统计数据的服务商优先尝试
+     */
+    private List<EndpointState> rankEndpoints() {
+        long now = System.currentTimeMillis();
+        List<EndpointState> ranked = new ArrayList<>(endpointStates);
+        ranked.sort(Comparator.comparing((EndpointState state) -> state.isCoolingDown(now))
+                .thenComparingDouble(EndpointState::score));
+        return ranked;
+    }
+
+    /**
+     * 一次请求的路由过程，包含主请求、对冲请求和失败切换
+     */
+    private class RoutedRequest {
+
+        private final ChatRequest chatRequest;
+
+        private final StreamingChatResponseHandler handler;
+
+        private final List<EndpointState> candidates;
+
+        /**
+         * 胜出的请求，只有胜出请求的回调会转发给调用方
+         */
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+
+        /**
+         * 以下状态由 this 锁保护
+         */
+        private int nextCandidate = 0;
+
+        private int runningAttempts = 0;
+
+        private boolean finished = false;
+
+        private RoutedRequest(ChatRequest chatRequest, StreamingChatResponseHandler handler, List<EndpointState> candidates) {
+            this.chatRequest = chatRequest;
+            this.handler = handler;
+            this.candidates = candidates;
+        }
+
+        private void start() {
+            startNextAttempt(null);
+            if (hedgeDelay != null && candidates.size() > 1) {
+                hedgeScheduler.schedule(this::hedge, hedgeDelay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (winner.get() != null || finished || nextCandidate > 1) {
+                    return;
+                }
+            }
+            log.info("{} 超过 {}ms 未返回首 token，发起对冲请求", candidates.getFirst().endpoint.name(), hedgeDelay.toMillis());
+            startNextAttempt(null);
+        }
+
+        /**
+         * 启动下一个服务商的请求，没有可用服务商且没有进行中的请求时返回错误
+         */
+        private void startNextAttempt(Throwable lastError) {
+            Attempt attempt = null;
+            boolean allFailed = false;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                if (nextCandidate < candidates.size()) {
+                    attempt = new Attempt(this, candidates.get(nextCandidate++));
+                    runningAttempts++;
+                } else if (runningAttempts == 0) {
+                    finished = true;
+                    allFailed = true;
+                }
+            }
+            if (attempt == null) {
+                // 还有进行中的请求（对冲请求）时等待它的结果
+                if (allFailed) {
+                    handler.onError(lastError);
+                }
+                return;
+            }
+            try {
+                attempt.state.endpoint.model().chat(chatRequest, attempt);
+            } catch (Exception e) {
+                attempt.onError(e);
+            }
+        }
+
+        private boolean tryWin(Attempt attempt) {
+            return winner.get() == attempt || winner.compareAndSet(null, attempt);
+        }
+
+        private void onAttemptFailed(Attempt attempt, Throwable error) {
+            synchronized (this) {
+                runningAttempts--;
+            }
+            if (winner.get() == attempt) {
+                synchronized (this) {
+                    finished = true;
+                }
+                handler.onError(error);
+                return;
+            }
+            if (winner.get() == null) {
+                log.warn("{} 请求失败，切换到下一个服务商", attempt.state.endpoint.name(), error);
+                startNextAttempt(error);
+            }
+        }
+
+        private void onAttemptCompleted(Attempt attempt, ChatResponse response) {
+            synchronized (this) {
+                runningAttempts--;
+                if (winner.get() == attempt) {
+                    finished = true;
+                }
+            }
+            if (winner.get() == attempt) {
+                handler.onCompleteResponse(response);
+            }
+        }
+    }
+
+    /**
+     * 发给单个服务商的请求
+     */
+    private class Attempt implements StreamingChatResponseHandler {
+
+        private final RoutedRequest request;
+
+        private final EndpointState state;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private volatile boolean firstTokenReceived = false;
+
+        private Attempt(RoutedRequest request, EndpointState state) {
+            this.request = request;
+            this.state = state;
+        }
+
+        /**
+         * 收到首个响应时记录耗时并竞争胜出
+         *
+         * @return 是否为胜出请求
+         */
+        private boolean onFirstSignal() {
+            if (!firstTokenReceived) {
+                firstTokenReceived = true;
+                state.recordFirstToken(System.currentTimeMillis() - startTime);
+            }
+            return request.tryWin(this);
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (onFirstSignal()) {
+                request.handler.onPartialResponse(partialResponse);
+            }
+        }
+
+        @Override
+        public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+            if (onFirstSignal()) {
+                request.handler.onPartialToolExecutionRequest(index, partialToolExecutionRequest);
+            }
+        }
+
+        @Override
+        public void onCompleteToolExecutionRequest(int index, ToolExecutionRequest completeToolExecutionRequest) {
+            if (onFirstSignal()) {
+                request.handler.onCompleteToolExecutionRequest(index, completeToolExecutionRequest);
+            }
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            onFirstSignal();
+            state.recordResult(true);
+            request.onAttemptCompleted(this, completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            state.recordResult(false);
+            request.onAttemptFailed(this, error);
+        }
+    }
+
+    /**
+     * 服务商及其统计数据
+     */
+    private class EndpointState {
+
+        private final RoutedEndpoint endpoint;
+
+        /**
+         * 首 token 耗时 EWMA（毫秒），NaN 表示还没有数据
+         */
+        private double ewmaFirstTokenMillis = Double.NaN;
+
+        private double ewmaErrorRate = 0;
+
+        private long cooldownUntil = 0;
+
+        private EndpointState(RoutedEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private synchronized void recordFirstToken(long millis) {
+            ewmaFirstTokenMillis = Double.isNaN(ewmaFirstTokenMillis)
+                    ? millis
+                    : ewmaAlpha * millis + (1 - ewmaAlpha) * ewmaFirstTokenMillis;
+        }
+
+        private synchronized void recordResult(boolean success) {
+            ewmaErrorRate = ewmaAlpha * (success ? 0 : 1) + (1 - ewmaAlpha) * ewmaErrorRate;
+            if (!success && ewmaErrorRate > maxErrorRate) {
+                cooldownUntil = System.currentTimeMillis() + cooldown.toMillis();
+                log.warn("服务商 {} 错误率 {} 超过上限，冷却 {}", endpoint.name(), ewmaErrorRate, cooldown);
+            }
+        }
+
+        private synchronized boolean isCoolingDown(long now) {
+            return now < cooldownUntil;
+        }
+
+        private synchronized double score() {
+            double firstTokenMillis = Double.isNaN(ewmaFirstTokenMillis) ? 0 : ewmaFirstTokenMillis;
+            return firstTokenMillis / Math.max(0.05, 1 - ewmaErrorRate);
+        }
+
+        private synchronized EndpointSnapshot snapshot() {
+            return new EndpointSnapshot(endpoint.name(), ewmaFirstTokenMillis, ewmaErrorRate,
+                    isCoolingDown(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * 路由的服务商
+     *
+     * @param name  名称
+     * @param model 该服务商的流式模型
+     */
+    public record RoutedEndpoint(String name, StreamingChatModel model) {
+    }
+
+    /**
+     * 服务商统计快照
+     *
+     * @param name                 名称
+     * @param ewmaFirstTokenMillis 首 token 耗时 EWMA（毫秒）
+     * @param ewmaErrorRate        错误率 EWMA
+     * @param coolingDown          是否在冷却中
+     */
+    public record EndpointSnapshot(String name, double ewmaFirstTokenMillis, double ewmaErrorRate, boolean coolingDown) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.paul.appgen.ai.tier;
+
+import cn.hutool.core.util.StrUtil;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import com.paul.appgen.model.enums.ModelTierEnum;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 基于规则的模型档位分类
+ * 首轮生成和大范围修改使用强模型；后续轮次中简短的、只涉及样式或文案的小修改使用快速模型
+ */
+public class HeuristicModelTierClassifier implements ModelTierClassifier {
+
+    /**
+     * 大范围修改的关键词，命中时始终使用强模型
+     */
+    private static final List<String> LARGE_CHANGE_KEYWORDS = List.of(
+            "新增页面", "添加页面", "多个页面", "重新生成", "重写", "重构", "整个", "全部", "完整",
+            "仪表盘", "后台", "系统", "平台", "dashboard", "rewrite", "redesign", "from scratch", "new page"
+    );
+
+    /**
+     * 小修改的关键词
+     */
+    private static final List<String> SMALL_EDIT_KEYWORDS = List.of(
+            "改", "换", "调整", "颜色", "字体", "字号", "文案", "文字", "标题", "按钮", "背景", "间距", "边距",
+            "圆角", "删除", "去掉", "隐藏", "居中", "对齐",
+            "color", "font", "rename", "change", "align", "remove", "padding", "margin"
+    );
+
+    private final int maxEditChars;
+
+    private final boolean fastForVueProject;
+
+    /**
+     * @param maxEditChars      小修改的最大消息长度
+     * @param fastForVueProject Vue 工程模式是否允许使用快速模型（需要快速模型支持工具调用）
+     */
+    public HeuristicModelTierClassifier(int maxEditChars, boolean fastForVueProject) {
+        this.maxEditChars = maxEditChars;
+        this.fastForVueProject = fastForVueProject;
+    }
+
+    @Override
+    public TierDecision classify(TierRequest request) {
+        if (request.firstTurn()) {
+            return new TierDecision(ModelTierEnum.STRONG, "first_turn");
+        }
+        if (request.codeGenType() == CodeGenTypeEnum.VUE_PROJECT && !fastForVueProject) {
+            return new TierDecision(ModelTierEnum.STRONG, "vue_project");
+        }
+        String message = StrUtil.trimToEmpty(request.userMessage()).toLowerCase(Locale.ROOT);
+        if (message.length() > maxEditChars) {
+            return new TierDecision(ModelTierEnum.STRONG, "long_message");
+        }
+        if (LARGE_CHANGE_KEYWORDS.stream().anyMatch(message::contains)) {
+            return new TierDecision(ModelTierEnum.STRONG, "large_change");
+        }
+        if (SMALL_EDIT_KEYWORDS.stream().anyMatch(message::contains)) {
+            return new TierDecision(ModelTierEnum.FAST, "small_edit");
+        }
+        return new TierDecision(ModelTierEnum.STRONG, "default");
+    }
+}
@@ -0,0 +1,39 @@
+package com.paul.appgen.ai.tier;
+
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import com.paul.appgen.model.enums.ModelTierEnum;
+
+/**
+ * 模型档位分类器，决定本轮对话使用快速模型还是强模型
+ * 默认实现为基于规则的 HeuristicModelTierClassifier，替换为其他实现（如小模型分类）只需修改 ModelTierConfig 中的 Bean
+ */
+public interface ModelTierClassifier {
+
+    /**
+     * 为本轮对话选择模型档位
+     *
+     * @param request 本轮对话信息
+     * @return 档位及原因
+     */
+    TierDecision classify(TierRequest request);
+
+    /**
+     * 本轮对话信息
+     *
+     * @param appId       应用ID
+     * @param codeGenType 生成类型
+     * @param userMessage 用户消息
+     * @param firstTurn   是否为首轮生成（对话记忆中还没有 AI 回复）
+     */
+    record TierRequest(long appId, CodeGenTypeEnum codeGenType, String userMessage, boolean firstTurn) {
+    }
+
+    /**
+     * 分类结果
+     *
+     * @param tier   模型档位
+     * @param reason 原因，作为指标标签，取值应为有限的几种
+     */
+    record TierDecision(ModelTierEnum tier, String reason) {
+    }
+}
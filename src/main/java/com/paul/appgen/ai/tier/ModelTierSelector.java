@@ -0,0 +1,112 @@
+package com.paul.appgen.ai.tier;
+
+import com.paul.appgen.ai.memory.ChatMemoryHydrator;
+import com.paul.appgen.config.ModelTierConfig;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import com.paul.appgen.model.enums.ModelTierEnum;
+import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.data.message.AiMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模型档位选择
+ * 调用分类器选择档位，并记录每次的分档结果（ai.tier.decisions）和生成结果（ai.tier.generation），
+ * 按 tier、reason、outcome 对比耗时和失败率，用于调整分档规则
+ */
+@Slf4j
+@Component
+public class ModelTierSelector {
+
+    private static final String METRIC_DECISIONS = "ai.tier.decisions";
+
+    private static final String METRIC_GENERATION = "ai.tier.generation";
+
+    private static final ModelTierClassifier.TierDecision DISABLED_DECISION =
+            new ModelTierClassifier.TierDecision(ModelTierEnum.STRONG, "disabled");
+
+    @Resource
+    private ModelTierConfig modelTierConfig;
+
+    @Resource
+    private ModelTierClassifier modelTierClassifier;
+
+    @Resource
+    private ChatMemoryHydrator chatMemoryHydrator;
+
+    @Resource
+    private RedisChatMemoryStore redisChatMemoryStore;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 为本轮对话选择模型档位
+     *
+     * @param appId       应用ID
+     * @param codeGenType 生成类型
+     * @param userMessage 用户消息
+     * @return 档位及原因
+     */
+    public ModelTierClassifier.TierDecision select(long appId, CodeGenTypeEnum codeGenType, String userMessage) {
+        if (!Boolean.TRUE.equals(modelTierConfig.getEnabled())) {
+            return DISABLED_DECISION;
+        }
+        ModelTierClassifier.TierDecision decision;
+        try {
+            chatMemoryHydrator.ensureHydrated(appId);
+            boolean firstTurn = redisChatMemoryStore.getMessages(appId).stream().noneMatch(AiMessage.class::isInstance);
+            decision = modelTierClassifier.classify(
+                    new ModelTierClassifier.TierRequest(appId, codeGenType, userMessage, firstTurn));
+        } catch (Exception e) {
+            // 分档只是优化，失败时使用强模型
+            log.error("模型分档失败，使用强模型，appId:{}", appId, e);
+            decision = new ModelTierClassifier.TierDecision(ModelTierEnum.STRONG, "error");
+        }
+        meterRegistry.counter(METRIC_DECISIONS, "codeGenType", codeGenType.getValue(),
+                "tier", decision.tier().getValue(), "reason", decision.reason()).increment();
+        log.info("模型分档，appId:{}，codeGenType:{}，tier:{}，reason:{}", appId, codeGenType.getValue(),
+                decision.tier().getValue(), decision.reason());
+        return decision;
+    }
+
+    /**
+     * 记录本轮生成的耗时和结果
+     *
+     * @param decision    分档结果
+     * @param codeGenType 生成类型
+     * @param appId       应用ID
+     * @param stream      生成流
+     * @return 带记录的生成流
+     */
+    public Flux<String> recordOutcome(ModelTierClassifier.TierDecision decision, CodeGenTypeEnum codeGenType,
+                                      long appId, Flux<String> stream) {
+        AtomicLong startTime = new AtomicLong();
+        AtomicLong outputChars = new AtomicLong();
+        return stream
+                .doOnSubscribe(subscription -> startTime.set(System.nanoTime()))
+                .doOnNext(chunk -> outputChars.addAndGet(chunk.length()))
+                .doFinally(signalType -> {
+                    String outcome = signalType == SignalType.ON_COMPLETE ? "success"
+                            : signalType == SignalType.ON_ERROR ? "error" : "cancel";
+                    Duration elapsed = Duration.ofNanos(System.nanoTime() - startTime.get());
+                    Timer.builder(METRIC_GENERATION)
+                            .tag("codeGenType", codeGenType.getValue())
+                            .tag("tier", decision.tier().getValue())
+                            .tag("reason", decision.reason())
+                            .tag("outcome", outcome)
+                            .register(meterRegistry)
+                            .record(elapsed);
+                    log.info("生成结束，appId:{}，tier:{}，reason:{}，outcome:{}，耗时:{}ms，输出:{}字符", appId,
+                            decision.tier().getValue(), decision.reason(), outcome, elapsed.toMillis(), outputChars.get());
+                });
+    }
+}
@@ -0,0 +1,65 @@
+package com.paul.appgen.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.service.IService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分页查询工具类
+ * 除了常规的 COUNT + 分页外，支持不统计总数的"是否有下一页"模式，以及按查询条件缓存的近似总数
+ */
+public class PageQueryUtils {
+
+    /**
+     * 近似总数缓存，key 为查询条件生成的 SQL
+     */
+    private static final Cache<String, Long> APPROXIMATE_TOTAL_CACHE = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    private PageQueryUtils() {
+    }
+
+    /**
+     * 按分页请求查询
+     *
+     * @param service      服务
+     * @param pageRequest  分页请求
+     * @param pageNum      页号
+     * @param queryWrapper 查询条件
+     * @param <T>          实体类型
+     * @return 分页结果
+     */
+    public static <T> Page<T> page(IService<T> service, PageRequest pageRequest, long pageNum, QueryWrapper queryWrapper) {
+        long pageSize = pageRequest.getPageSize();
+        if (pageRequest.isSearchCount()) {
+            return service.page(Page.of(pageNum, pageSize), queryWrapper);
+        }
+        // 近似总数要在加 limit 之前生成查询签名
+        Long approximateTotal = null;
+        if (pageRequest.isApproximateTotal()) {
+            String signature = queryWrapper.toSQL();
+            approximateTotal = APPROXIMATE_TOTAL_CACHE.get(signature, key -> service.count(queryWrapper.clone()));
+        }
+        // 多查一条判断是否有下一页
+        queryWrapper.limit((pageNum - 1) * pageSize, pageSize + 1);
+        List<T> records = new ArrayList<>(service.list(queryWrapper));
+        boolean hasNext = records.size() > pageSize;
+        if (hasNext) {
+            records = new ArrayList<>(records.subList(0, (int) pageSize));
+        }
+        Page<T> page = new Page<>(pageNum, pageSize);
+        page.setRecords(records);
+        page.setTotalRow(approximateTotal == null ? -1 : approximateTotal);
+        // 总页数只表示是否还有下一页
+        page.setTotalPage(hasNext ? pageNum + 1 : pageNum);
+        return page;
+    }
+}
@@ -27,4 +27,15 @@ public class PageRequest {
      * 排序顺序（默认降序）
      */
     private String sortOrder = "descend";
+
+    /**
+     * 是否统计总数（默认统计）
+     * 为 false 时多查一条判断是否有下一页，不执行 COUNT，totalRow 为 -1
+     */
+    private boolean searchCount = true;
+
+    /**
+     * 是否返回近似总数，相同查询条件的总数会缓存一段时间，仅在 searchCount 为 false 时生效
+     */
+    private boolean approximateTotal = false;
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.paul.appgen.common;
+
+import cn.hutool.core.util.StrUtil;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.exception.ThrowUtils;
+
+import java.util.Set;
+
+/**
+ * 排序字段规划
+ * 只允许按有索引支撑的字段排序，其他字段直接拒绝，避免全表 filesort；
+ * 所有排序都追加 id 作为次级排序，保证翻页稳定（InnoDB 二级索引本身包含主键，不会额外排序）
+ */
+public class SortFieldPlanner {
+
+    private static final String ID_FIELD = "id";
+
+    private static final String ASCEND = "ascend";
+
+    /**
+     * 允许排序的字段
+     */
+    private final Set<String> allowedSortFields;
+
+    /**
+     * 未指定排序字段时的默认排序字段
+     */
+    private final String defaultSortField;
+
+    private SortFieldPlanner(String defaultSortField, Set<String> allowedSortFields) {
+        this.defaultSortField = defaultSortField;
+        this.allowedSortFields = allowedSortFields;
+    }
+
+    /**
+     * 创建排序规划
+     *
+     * @param defaultSortField  默认排序字段（降序）
+     * @param allowedSortFields 允许排序的字段，必须有索引支撑
+     * @return 排序规划
+     */
+    public static SortFieldPlanner of(String defaultSortField, String... allowedSortFields) {
+        return new SortFieldPlanner(defaultSortField, Set.of(allowedSortFields));
+    }
+
+    /**
+     * 校验并拼接排序条件
+     *
+     * @param queryWrapper 查询条件
+     * @param sortField    客户端传入的排序字段，为空时使用默认排序
+     * @param sortOrder    排序顺序
+     */
+    public void applySort(QueryWrapper queryWrapper, String sortField, String sortOrder) {
+        if (StrUtil.isBlank(sortField)) {
+            queryWrapper.orderBy(defaultSortField, false);
+            if (!ID_FIELD.equals(defaultSortField)) {
+                queryWrapper.orderBy(ID_FIELD, false);
+            }
+            return;
+        }
+        ThrowUtils.throwIf(!allowedSortFields.contains(sortField), ErrorCode.PARAMS_ERROR, "不支持的排序字段：" + sortField);
+        boolean ascending = ASCEND.equals(sortOrder);
+        queryWrapper.orderBy(sortField, ascending);
+        if (!ID_FIELD.equals(sortField)) {
+            queryWrapper.orderBy(ID_FIELD, ascending);
+        }
+    }
+
+    /**
+     * 游标（keyset）分页：按 id 排序时用上一页最后一条的 id 作为游标，翻页深度不影响性能
+     * 游标只支持按 id 排序，调用方此时应固定查询第一页
+     *
+     * @param queryWrapper 查询条件
+     * @param lastId       上一页最后一条记录的 id，为空时不使用游标
+     * @param sortField    排序字段
+     * @param sortOrder    排序顺序
+     */
+    public void applyKeyset(QueryWrapper queryWrapper, Long lastId, String sortField, String sortOrder) {
+        if (lastId == null) {
+            return;
+        }
+        String effectiveSortField = StrUtil.blankToDefault(sortField, defaultSortField);
+        ThrowUtils.throwIf(!ID_FIELD.equals(effectiveSortField), ErrorCode.PARAMS_ERROR, "游标分页只支持按 id 排序");
+        boolean ascending = StrUtil.isNotBlank(sortField) && ASCEND.equals(sortOrder);
+        if (ascending) {
+            queryWrapper.gt(ID_FIELD, lastId);
+        } else {
+            queryWrapper.lt(ID_FIELD, lastId);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.paul.appgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 登录令牌配置
+ * 开启后登录接口会额外返回签名令牌，携带令牌的请求在本地校验，不再读取 Redis 中的 Session
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.auth.token")
+@Data
+public class AuthTokenConfig {
+
+    /**
+     * 是否开启令牌模式
+     */
+    private Boolean enabled = false;
+
+    /**
+     * HMAC 签名密钥，开启令牌模式时必须配置
+     */
+    private String secret;
+
+    /**
+     * 令牌有效期
+     */
+    private Duration ttl = Duration.ofDays(3);
+
+    /**
+     * 吊销状态在本地的缓存时间，多实例下其他实例的登出最多延迟这么久生效
+     */
+    private Duration revocationCacheTtl = Duration.ofSeconds(30);
+}
@@ -0,0 +1,25 @@
+package com.paul.appgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 补丁编辑配置
+ * HTML、多文件模式的后续修改把当前文件附加到提示词中，模型可以只输出 SEARCH/REPLACE 补丁而不是完整代码
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.generation.edit")
+@Data
+public class CodeEditConfig {
+
+    /**
+     * 是否开启补丁编辑，关闭后每次修改都输出完整代码
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 当前文件总字符数超过该值时不附加文件，按原方式修改
+     */
+    private Integer maxFileChars = 100_000;
+}
@@ -0,0 +1,42 @@
+package com.paul.appgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 生成结果缓存配置
+ * 只缓存 HTML、多文件模式下对话记忆为空的首轮生成
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.generation.cache")
+@Data
+public class CodeGenCacheConfig {
+
+    /**
+     * 是否开启缓存，关闭后每次都调用模型
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 本地缓存占用上限（字符数）
+     */
+    private Long localMaxChars = 32L * 1024 * 1024;
+
+    /**
+     * Redis 缓存有效期
+     */
+    private Duration redisTtl = Duration.ofDays(7);
+
+    /**
+     * 回放时每个分片的字符数
+     */
+    private Integer replayChunkSize = 200;
+
+    /**
+     * 回放时分片间隔，模拟流式输出
+     */
+    private Duration replayInterval = Duration.ofMillis(20);
+}
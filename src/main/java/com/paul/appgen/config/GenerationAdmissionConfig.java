@@ -0,0 +1,46 @@
+package com.paul.appgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 代码生成准入控制配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.generation.admission")
+@Data
+public class GenerationAdmissionConfig {
+
+    /**
+     * 单实例同时进行的生成任务数
+     */
+    private Integer maxConcurrent = 20;
+
+    /**
+     * 单个用户同时进行的生成任务数
+     */
+    private Integer maxConcurrentPerUser = 2;
+
+    /**
+     * 排队的最大任务数，超过后直接拒绝
+     */
+    private Integer maxQueueSize = 100;
+
+    /**
+     * 最长排队时间
+     */
+    private Duration queueTimeout = Duration.ofMinutes(2);
+
+    /**
+     * 每个用户在 ratePeriod 内允许发起的生成次数（令牌桶，多实例共享）
+     */
+    private Long userRate = 10L;
+
+    /**
+     * 令牌桶周期
+     */
+    private Duration ratePeriod = Duration.ofMinutes(1);
+}
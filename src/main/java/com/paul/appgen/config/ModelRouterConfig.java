@@ -0,0 +1,111 @@
+package com.paul.appgen.config;
+
+import com.paul.appgen.ai.router.ModelRouterRegistry;
+import com.paul.appgen.ai.router.RoutingStreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import lombok.Data;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多服务商路由配置
+ * 开启后代码生成的流式请求在配置的多个 OpenAI 兼容服务商之间路由，未开启时使用单一服务商。
+ * 服务商按分组配置（code：HTML 和多文件，vue：Vue 工程），未配置的分组使用原有的单一模型
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.model-router")
+@Data
+public class ModelRouterConfig {
+
+    /**
+     * 是否开启多服务商路由
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 分组名 -> 分组配置
+     */
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    /**
+     * EWMA 平滑系数
+     */
+    private Double ewmaAlpha = 0.3;
+
+    /**
+     * 错误率上限，超过后服务商进入冷却
+     */
+    private Double maxErrorRate = 0.5;
+
+    /**
+     * 冷却时间
+     */
+    private Duration cooldown = Duration.ofSeconds(30);
+
+    @Data
+    public static class Group {
+
+        /**
+         * 服务商列表
+         */
+        private List<Endpoint> endpoints = new ArrayList<>();
+
+        /**
+         * 超过该时间仍未收到首 token 时向下一个服务商发起对冲请求，不配置时不对冲（对冲会让该请求的成本翻倍）
+         */
+        private Duration hedgeDelay;
+    }
+
+    @Data
+    public static class Endpoint {
+
+        private String name;
+
+        private String baseUrl;
+
+        private String apiKey;
+
+        private String modelName;
+
+        private Integer maxTokens;
+
+        private Double temperature;
+    }
+
+    /**
+     * 各分组的路由模型，每个服务商的模型都挂载监听器，token 用量按实际服务商的模型统计
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "app.model-router", name = "enabled", havingValue = "true")
+    public ModelRouterRegistry modelRouterRegistry(List<ChatModelListener> chatModelListeners) {
+        Map<String, RoutingStreamingChatModel> routers = new LinkedHashMap<>();
+        groups.forEach((groupName, group) -> {
+            if (group.getEndpoints().isEmpty()) {
+                return;
+            }
+            List<RoutingStreamingChatModel.RoutedEndpoint> routedEndpoints = group.getEndpoints().stream()
+                    .map(endpoint -> new RoutingStreamingChatModel.RoutedEndpoint(endpoint.getName(),
+                            OpenAiStreamingChatModel.builder()
+                                    .apiKey(endpoint.getApiKey())
+                                    .baseUrl(endpoint.getBaseUrl())
+                                    .modelName(endpoint.getModelName())
+                                    .maxTokens(endpoint.getMaxTokens())
+                                    .temperature(endpoint.getTemperature())
+                                    .listeners(chatModelListeners)
+                                    .build()))
+                    .toList();
+            routers.put(groupName, new RoutingStreamingChatModel(routedEndpoints, group.getHedgeDelay(),
+                    ewmaAlpha, maxErrorRate, cooldown));
+        });
+        return new ModelRouterRegistry(routers);
+    }
+}
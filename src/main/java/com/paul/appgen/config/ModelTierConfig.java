@@ -0,0 +1,79 @@
+package com.paul.appgen.config;
+
+import com.paul.appgen.ai.tier.HeuristicModelTierClassifier;
+import com.paul.appgen.ai.tier.ModelTierClassifier;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import lombok.Data;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * 模型分档配置
+ * 开启后后续轮次中的小修改使用快速、便宜的模型，首轮生成和大范围修改仍使用原来的强模型
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.model-tier")
+@Data
+public class ModelTierConfig {
+
+    /**
+     * 是否开启模型分档，开启时需要配置快速模型
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 小修改的最大消息长度（字符数）
+     */
+    private Integer maxEditChars = 120;
+
+    /**
+     * Vue 工程模式是否允许使用快速模型（需要快速模型支持工具调用）
+     */
+    private Boolean fastForVueProject = false;
+
+    /**
+     * 快速模型
+     */
+    private FastModel fastModel = new FastModel();
+
+    @Data
+    public static class FastModel {
+
+        private String baseUrl;
+
+        private String apiKey;
+
+        private String modelName;
+
+        private Integer maxTokens;
+
+        private Double temperature;
+    }
+
+    @Bean
+    public ModelTierClassifier modelTierClassifier() {
+        return new HeuristicModelTierClassifier(maxEditChars, Boolean.TRUE.equals(fastForVueProject));
+    }
+
+    /**
+     * 快速流式模型，只在开启模型分档时创建
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.model-tier", name = "enabled", havingValue = "true")
+    public StreamingChatModel fastStreamingChatModel(List<ChatModelListener> chatModelListeners) {
+        return OpenAiStreamingChatModel.builder()
+                .apiKey(fastModel.getApiKey())
+                .baseUrl(fastModel.getBaseUrl())
+                .modelName(fastModel.getModelName())
+                .maxTokens(fastModel.getMaxTokens())
+                .temperature(fastModel.getTemperature())
+                .listeners(chatModelListeners)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.paul.appgen.config;
+
+import com.paul.appgen.manager.auth.PasswordHasher;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 密码哈希配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.auth.password")
+@Data
+public class PasswordHashConfig {
+
+    /**
+     * 固定迭代次数，不配置时启动时按 targetMillis 测量
+     */
+    private Integer iterations;
+
+    /**
+     * 单次哈希的目标耗时（毫秒）
+     */
+    private Long targetMillis = 50L;
+
+    /**
+     * 最小迭代次数
+     */
+    private Integer minIterations = 100000;
+
+    @Bean
+    public PasswordHasher passwordHasher() {
+        int effectiveIterations = iterations != null
+                ? iterations
+                : PasswordHasher.benchmarkIterations(targetMillis, minIterations);
+        return new PasswordHasher(effectiveIterations);
+    }
+}
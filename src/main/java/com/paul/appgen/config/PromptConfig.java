@@ -0,0 +1,19 @@
+package com.paul.appgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 提示词配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.prompt")
+@Data
+public class PromptConfig {
+
+    /**
+     * 热加载目录，配置后定时检查目录中同名的提示词文件，修改后无需重启即可生效；为空时只使用内置提示词
+     */
+    private String reloadDir;
+}
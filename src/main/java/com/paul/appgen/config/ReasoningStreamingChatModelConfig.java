@@ -1,12 +1,15 @@
 package com.paul.appgen.config;
 
 import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 
 @Configuration
 @ConfigurationProperties(prefix = "langchain4j.open-ai.streaming-chat-model")
@@ -31,7 +34,7 @@ public class ReasoningStreamingChatModelConfig {
      * 推理流式模型（用于 Vue 项目生成，带工具调用）
      */
     @Bean
-    public StreamingChatModel reasoningStreamingChatModel() {
+    public StreamingChatModel reasoningStreamingChatModel(List<ChatModelListener> chatModelListeners) {
         return OpenAiStreamingChatModel.builder()
                 .apiKey(apiKey)
                 .baseUrl(baseUrl)
@@ -40,6 +43,7 @@ public class ReasoningStreamingChatModelConfig {
                 .temperature(temperature)
                 .logRequests(logRequests)
                 .logResponses(logResponses)
+                .listeners(chatModelListeners)
                 .build();
     }
 }
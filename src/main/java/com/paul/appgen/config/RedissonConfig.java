@@ -0,0 +1,41 @@
+package com.paul.appgen.config;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Data;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.redisson.config.SingleServerConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Redisson 配置类
+ * 复用 spring.data.redis 的连接参数，用于布隆过滤器、限流器等分布式数据结构
+ */
+@Configuration
+@ConfigurationProperties(prefix = "spring.data.redis")
+@Data
+public class RedissonConfig {
+
+    private String host;
+
+    private int port;
+
+    private String password;
+
+    private int database;
+
+    @Bean(destroyMethod = "shutdown")
+    public RedissonClient redissonClient() {
+        Config config = new Config();
+        SingleServerConfig singleServerConfig = config.useSingleServer()
+                .setAddress("redis://" + host + ":" + port)
+                .setDatabase(database);
+        if (StrUtil.isNotBlank(password)) {
+            singleServerConfig.setPassword(password);
+        }
+        return Redisson.create(config);
+    }
+}
@@ -0,0 +1,55 @@
+package com.paul.appgen.config;
+
+import com.paul.appgen.core.cache.SemanticPromptCache;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 语义缓存配置
+ * 使用进程内的 ONNX 向量模型（all-MiniLM-L6-v2 量化版，CPU 推理）计算提示词向量。
+ * 该模型只针对英文训练，中文提示词之间的相似度普遍接近 1（“计算器”和“贪吃蛇游戏”约 0.99），
+ * 无论直接复用还是作为参考实现都会把无关应用的代码带进来，因此默认关闭，换成多语言向量模型（如 bge-small-zh）后再开启
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.generation.semantic-cache")
+@Data
+public class SemanticCacheConfig {
+
+    /**
+     * 是否开启语义缓存
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 是否允许语义相似时直接复用缓存结果，换成多语言向量模型并重新调整阈值后再开启
+     */
+    private Boolean serveEnabled = false;
+
+    /**
+     * 余弦相似度达到该值时直接复用缓存结果
+     */
+    private Double serveThreshold = 0.95;
+
+    /**
+     * 余弦相似度达到该值时把缓存结果作为参考实现传给模型
+     */
+    private Double scaffoldThreshold = 0.85;
+
+    /**
+     * 索引中保留的最大提示词数，超过后淘汰最早加入的
+     */
+    private Integer maxEntries = 5000;
+
+    /**
+     * 关闭时不加载向量模型
+     */
+    @Bean
+    public SemanticPromptCache semanticPromptCache() {
+        return new SemanticPromptCache(Boolean.TRUE.equals(enabled) ? new AllMiniLmL6V2QuantizedEmbeddingModel() : null,
+                Boolean.TRUE.equals(serveEnabled) ? serveThreshold : SemanticPromptCache.SERVE_DISABLED,
+                scaffoldThreshold, maxEntries);
+    }
+}
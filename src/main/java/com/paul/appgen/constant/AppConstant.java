@@ -25,6 +25,16 @@ public interface AppConstant {
      */
     String CODE_DEPLOY_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_deploy";
 
+    /**
+     * 项目脚手架目录（已安装依赖的模板）
+     */
+    String SCAFFOLD_ROOT_DIR = System.getProperty("user.dir") + "/tmp/scaffold";
+
+    /**
+     * 对话历史归档目录
+     */
+    String CHAT_HISTORY_ARCHIVE_DIR = System.getProperty("user.dir") + "/tmp/chat_archive";
+
     /**
      * 应用部署域名
      */
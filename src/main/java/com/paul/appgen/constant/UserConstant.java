@@ -10,6 +10,11 @@ public interface UserConstant {
      */
     String USER_LOGIN_STATE = "user_login";
 
+    /**
+     * 请求内缓存的登录用户键，同一个请求只解析一次登录用户
+     */
+    String LOGIN_USER_REQUEST_ATTRIBUTE = "login_user";
+
     //  region 权限
 
     /**
@@ -1,6 +1,5 @@
 package com.paul.appgen.controller;
 
-import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.mybatisflex.core.paginate.Page;
@@ -9,25 +8,29 @@ import com.mybatisflex.core.query.QueryWrapper;
 import com.paul.appgen.annotation.AuthCheck;
 import com.paul.appgen.common.BaseResponse;
 import com.paul.appgen.common.DeleteRequest;
+import com.paul.appgen.common.PageQueryUtils;
 import com.paul.appgen.common.ResultUtils;
-import com.paul.appgen.constant.AppConstant;
 import com.paul.appgen.constant.UserConstant;
 import com.paul.appgen.exception.BusinessException;
 import com.paul.appgen.exception.ErrorCode;
 import com.paul.appgen.exception.ThrowUtils;
+import com.paul.appgen.manager.GenerationRunManager;
 import com.paul.appgen.model.dto.app.*;
 import com.paul.appgen.model.entity.App;
 import com.paul.appgen.model.entity.User;
+import com.paul.appgen.model.vo.AppCleanupProgressVO;
 import com.paul.appgen.model.vo.AppVO;
 import com.paul.appgen.service.AppService;
 import com.paul.appgen.service.UserService;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -53,19 +56,37 @@ public class AppController {
     @Resource
     private UserService userService;
 
+    /**
+     * 应用聊天生成代码（SSE）
+     * 每个事件带有 id，断线后浏览器自动携带 Last-Event-ID 重连，从断点续传，不会重新生成
+     *
+     * @param appId       应用ID
+     * @param message     用户消息
+     * @param lastEventId 断线前最后收到的事件ID
+     * @param request     请求
+     * @return 生成事件流
+     */
     @GetMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId, @RequestParam String message, HttpServletRequest request) {
+    public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId, @RequestParam String message,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                       HttpServletRequest request) {
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID错误");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "提示词不能为空");
         User loginUser = userService.getLoginUser(request);
-        Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
-        return contentFlux.map(chunk -> {
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-                })
+        // 续传不消耗 token，不经过准入控制；新任务的限流、并发上限和排队在生成任务内完成，排队期间推送 queue 事件
+        Flux<GenerationRunManager.GenerationEvent> eventFlux = StrUtil.isNotBlank(lastEventId)
+                ? appService.resumeGenCode(appId, lastEventId, loginUser)
+                : appService.chatToGenCode(appId, message, loginUser);
+        return eventFlux.map(this::toServerSentEvent)
+                // 流开始后的业务异常（如排队超时）无法再交给全局异常处理器，转成业务错误事件
+                .onErrorResume(BusinessException.class, e -> Flux.just(
+                        ServerSentEvent.<String>builder()
+                                .event(GenerationRunManager.EVENT_TYPE_ERROR)
+                                .data(JSONUtil.toJsonStr(Map.of(
+                                        "error", true,
+                                        "code", e.getCode(),
+                                        "message", e.getMessage())))
+                                .build()))
                 .concatWith(Mono.just(
                         ServerSentEvent.<String>builder()
                                 .event("done")
@@ -74,6 +95,21 @@ public class AppController {
                 ));
     }
 
+    private ServerSentEvent<String> toServerSentEvent(GenerationRunManager.GenerationEvent event) {
+        if (event.type() != null) {
+            return ServerSentEvent.<String>builder()
+                    .id(event.id())
+                    .event(event.type())
+                    .data(event.data())
+                    .build();
+        }
+        Map<String, String> wrapper = Map.of("d", event.data());
+        return ServerSentEvent.<String>builder()
+                .id(event.id())
+                .data(JSONUtil.toJsonStr(wrapper))
+                .build();
+    }
+
     /**
      * 添加应用程序接口
      *
@@ -213,12 +249,10 @@ public class AppController {
         // 只查询当前用户的应用
         appQueryMyRequest.setUserId(loginUser.getId());
         QueryWrapper queryWrapper = appService.getMyQueryWrapper(appQueryMyRequest, loginUser.getId());
-        Page<App> appPage = appService.page(Page.of(pageNum, pageSize), queryWrapper);
+        // 支持不统计总数的分页模式
+        Page<App> appPage = PageQueryUtils.page(appService, appQueryMyRequest, pageNum, queryWrapper);
         // 数据封装
-        Page<AppVO> appVOPage = new Page<>(pageNum, pageSize, appPage.getTotalRow());
-        List<AppVO> appVOList = appService.getAppVOList(appPage.getRecords());
-        appVOPage.setRecords(appVOList);
-        return ResultUtils.success(appVOPage);
+        return ResultUtils.success(appService.getAppVOPage(appPage));
     }
 
     /**
@@ -228,22 +262,17 @@ public class AppController {
      * @return BaseResponse<Page < AppVO>> 返回分页查询结果，包含应用视图对象列表
      */
     @PostMapping("/good/list/page/vo")
-    public BaseResponse<Page<AppVO>> listGoodAppVOByPage(@RequestBody AppQueryRequest appQueryRequest) {
+    public ResponseEntity<String> listGoodAppVOByPage(@RequestBody AppQueryRequest appQueryRequest) {
         ThrowUtils.throwIf(appQueryRequest == null, ErrorCode.PARAMS_ERROR);
         // 限制每页最多 20 个
         long pageSize = appQueryRequest.getPageSize();
         ThrowUtils.throwIf(pageSize > 20, ErrorCode.PARAMS_ERROR, "每页最多查询 20 个应用");
         long pageNum = appQueryRequest.getPageNum();
-        // 只查询精选的应用
-        appQueryRequest.setPriority(AppConstant.GOOD_APP_PRIORITY);
-        QueryWrapper queryWrapper = appService.getQueryWrapper(appQueryRequest);
-        // 分页查询
-        Page<App> appPage = appService.page(Page.of(pageNum, pageSize), queryWrapper);
-        // 数据封装
-        Page<AppVO> appVOPage = new Page<>(pageNum, pageSize, appPage.getTotalRow());
-        List<AppVO> appVOList = appService.getAppVOList(appPage.getRecords());
-        appVOPage.setRecords(appVOList);
-        return ResultUtils.success(appVOPage);
+        // 精选应用从内存快照读取，直接返回序列化好的响应
+        String responseJson = appService.getGoodAppPageJson(appQueryRequest.getAppName(), pageNum, pageSize);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(responseJson);
     }
 
     /**
@@ -265,6 +294,19 @@ public class AppController {
         return ResultUtils.success(appService.removeById(id));
     }
 
+    /**
+     * 查询应用删除后的关联数据清理进度
+     *
+     * @param appId 应用ID
+     * @return 清理进度
+     */
+    @GetMapping("/admin/cleanup/progress")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)  // 权限检查，只有管理员角色可以访问
+    public BaseResponse<AppCleanupProgressVO> getAppCleanupProgress(@RequestParam Long appId) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR);
+        return ResultUtils.success(appService.getCleanupProgress(appId));
+    }
+
     /**
      * 更新应用程序接口
      * 该接口用于管理员更新应用程序信息
@@ -279,15 +321,8 @@ public class AppController {
         if (appAdminUpdateRequest == null || appAdminUpdateRequest.getId() == null) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
         }
-        long id = appAdminUpdateRequest.getId();
-        // 判断是否存在
-        App oldApp = appService.getById(id);
-        ThrowUtils.throwIf(oldApp == null, ErrorCode.NOT_FOUND_ERROR);
-        App app = new App();
-        BeanUtil.copyProperties(appAdminUpdateRequest, app);
-        // 设置编辑时间
-        app.setEditTime(LocalDateTime.now());
-        boolean result = appService.updateById(app);
+        // 由服务层校验并更新，精选状态变化时会同步重建精选列表
+        boolean result = appService.updateAppByAdmin(appAdminUpdateRequest);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
         return ResultUtils.success(true);
     }
@@ -304,9 +339,10 @@ public class AppController {
     public BaseResponse<Page<AppVO>> listAppVOByPageByAdmin(@RequestBody AppQueryRequest appQueryRequest) {
         // 参数校验，如果请求参数为空则抛出参数错误异常
         ThrowUtils.throwIf(appQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        // 游标分页时固定查询第一页
+        long pageNum = appQueryRequest.getLastId() != null ? 1 : appQueryRequest.getPageNum();
         // 执行分页查询，获取应用数据列表
-        Page<App> appPage = appService.page(
-                new Page<>(appQueryRequest.getPageNum(), appQueryRequest.getPageSize()),  // 设置分页参数
+        Page<App> appPage = PageQueryUtils.page(appService, appQueryRequest, pageNum,
                 appService.getQueryWrapper(appQueryRequest));  // 获取查询条件构造器
         // 将查询结果转换为视图对象并返回成功响应
         return ResultUtils.success(appService.getAppVOPage(appPage));
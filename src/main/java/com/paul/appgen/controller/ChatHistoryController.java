@@ -4,8 +4,10 @@ import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.paul.appgen.annotation.AuthCheck;
 import com.paul.appgen.common.BaseResponse;
+import com.paul.appgen.common.PageQueryUtils;
 import com.paul.appgen.common.ResultUtils;
 import com.paul.appgen.constant.UserConstant;
+import com.paul.appgen.core.codec.ChatMessageCodec;
 import com.paul.appgen.exception.ErrorCode;
 import com.paul.appgen.exception.ThrowUtils;
 import com.paul.appgen.model.dto.chathistory.ChatHistoryQueryRequest;
@@ -66,10 +68,10 @@ public class ChatHistoryController {
     public BaseResponse<Page<ChatHistory>> listAllChatHistoryByPageForAdmin(@RequestBody ChatHistoryQueryRequest chatHistoryQueryRequest) {
         ThrowUtils.throwIf(chatHistoryQueryRequest == null, ErrorCode.PARAMS_ERROR);
         long pageNum = chatHistoryQueryRequest.getPageNum();
-        long pageSize = chatHistoryQueryRequest.getPageSize();
         // 查询数据
         QueryWrapper queryWrapper = chatHistoryService.getQueryWrapper(chatHistoryQueryRequest);
-        Page<ChatHistory> result = chatHistoryService.page(Page.of(pageNum, pageSize), queryWrapper);
+        Page<ChatHistory> result = PageQueryUtils.page(chatHistoryService, chatHistoryQueryRequest, pageNum, queryWrapper);
+        result.getRecords().forEach(ChatMessageCodec::decode);
         return ResultUtils.success(result);
     }
 
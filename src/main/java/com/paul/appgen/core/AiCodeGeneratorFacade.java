@@ -3,14 +3,23 @@ package com.paul.appgen.core;
 import cn.hutool.json.JSONUtil;
 import com.paul.appgen.ai.AiCodeGeneratorFactory;
 import com.paul.appgen.ai.AiCodeGeneratorService;
+import com.paul.appgen.ai.memory.PrefixStableChatMemory;
 import com.paul.appgen.ai.model.HtmlCodeResult;
 import com.paul.appgen.ai.model.MultiFileCodeResult;
 import com.paul.appgen.ai.model.message.AiResponseMessage;
 import com.paul.appgen.ai.model.message.ToolExecutedMessage;
 import com.paul.appgen.ai.model.message.ToolRequestMessage;
+import com.paul.appgen.ai.tier.ModelTierClassifier;
+import com.paul.appgen.ai.tier.ModelTierSelector;
+import com.paul.appgen.config.CodeEditConfig;
 import com.paul.appgen.constant.AppConstant;
+import com.paul.appgen.core.cache.CodeGenResponseCache;
+import com.paul.appgen.core.cache.SemanticPromptCache;
 import com.paul.appgen.core.parser.CodeParserExecutor;
+import com.paul.appgen.core.parser.CodePatchParser;
 import com.paul.appgen.core.saver.CodeFileSaverExecutor;
+import com.paul.appgen.core.saver.CodePatchApplier;
+import com.paul.appgen.core.scaffold.VueProjectScaffolder;
 import com.paul.appgen.exception.BusinessException;
 import com.paul.appgen.exception.ErrorCode;
 import com.paul.appgen.model.enums.CodeGenTypeEnum;
@@ -23,6 +32,15 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 代码生成门面类，组合代码生成和保存功能
@@ -31,11 +49,56 @@ import java.io.File;
 @Slf4j
 public class AiCodeGeneratorFacade {
 
+    /**
+     * 语义缓存作为参考实现时附加到用户消息后的说明
+     */
+    private static final String SCAFFOLD_PROMPT_PREFIX = "以下是一个相似需求的参考实现，请在此基础上按本次需求修改，并输出完整代码：\n";
+
+    /**
+     * 后续修改时附加到用户消息后的说明，后面跟当前文件内容
+     */
+    private static final String EDIT_PROMPT_PREFIX = "当前项目文件如下。只需要局部修改时，请按系统提示词中的 SEARCH/REPLACE 补丁格式只输出修改部分：\n";
+
+    /**
+     * 补丁无法应用时要求模型重新输出完整代码，当前文件同样只在本轮发送
+     */
+    private static final String FULL_REGENERATION_PROMPT = "上一次输出的补丁无法应用到当前文件，请不要使用补丁格式，按本次修改要求输出完整代码。";
+
+    private static final String CURRENT_FILES_PREFIX = "当前项目文件如下：\n";
+
+    private static final String PATCH_FALLBACK_NOTICE = "\n\n> 补丁无法应用，正在重新生成完整代码……\n\n";
+
+    /**
+     * 各生成类型的代码文件及代码块语言
+     */
+    private static final Map<CodeGenTypeEnum, Map<String, String>> EDITABLE_FILES = Map.of(
+            CodeGenTypeEnum.HTML, orderedMap("index.html", "html"),
+            CodeGenTypeEnum.MULTI_FILE, orderedMap("index.html", "html", "style.css", "css", "script.js", "javascript")
+    );
+
+    private static final CodePatchParser CODE_PATCH_PARSER = new CodePatchParser();
+
     @Resource
     private AiCodeGeneratorFactory aiCodeGeneratorFactory;
 
+    @Resource
+    private CodeGenResponseCache codeGenResponseCache;
+
+    @Resource
+    private SemanticPromptCache semanticPromptCache;
+
+    @Resource
+    private VueProjectScaffolder vueProjectScaffolder;
+
+    @Resource
+    private ModelTierSelector modelTierSelector;
+
+    @Resource
+    private CodeEditConfig codeEditConfig;
+
     /**
      * 统一入口
+     * 非流式生成直接返回结构化结果，不使用生成结果缓存（缓存保存的是流式原始输出）
      *
      * @param userMessage     用户提示词
      * @param codeGenTypeEnum 生成类型
@@ -46,20 +109,24 @@ public class AiCodeGeneratorFacade {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "生成类型不能为空");
         }
         AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
-        return switch (codeGenTypeEnum) {
-            case HTML -> {
-                HtmlCodeResult htmlCodeResult = aiCodeGeneratorService.generateHtmlCode(userMessage);
-                yield  CodeFileSaverExecutor.executeSaver(htmlCodeResult, CodeGenTypeEnum.HTML,appId);
-            }
-            case MULTI_FILE -> {
-                MultiFileCodeResult multiFileCodeResult = aiCodeGeneratorService.generateMultiFileCode(userMessage);
-                yield CodeFileSaverExecutor.executeSaver(multiFileCodeResult, CodeGenTypeEnum.MULTI_FILE,appId);
-            }
-            default -> {
-                String errorMessage = "不支持的生成类型" + codeGenTypeEnum.getValue();
-                throw new BusinessException(ErrorCode.PARAMS_ERROR, errorMessage);
-            }
-        };
+        try {
+            return switch (codeGenTypeEnum) {
+                case HTML -> {
+                    HtmlCodeResult htmlCodeResult = aiCodeGeneratorService.generateHtmlCode(appId, userMessage);
+                    yield  CodeFileSaverExecutor.executeSaver(htmlCodeResult, CodeGenTypeEnum.HTML,appId);
+                }
+                case MULTI_FILE -> {
+                    MultiFileCodeResult multiFileCodeResult = aiCodeGeneratorService.generateMultiFileCode(appId, userMessage);
+                    yield CodeFileSaverExecutor.executeSaver(multiFileCodeResult, CodeGenTypeEnum.MULTI_FILE,appId);
+                }
+                default -> {
+                    String errorMessage = "不支持的生成类型" + codeGenTypeEnum.getValue();
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, errorMessage);
+                }
+            };
+        } finally {
+            aiCodeGeneratorFactory.evictChatMemory(appId);
+        }
     }
 
     /**
@@ -73,17 +140,18 @@ public class AiCodeGeneratorFacade {
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "生成类型不能为空");
         }
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
-        return switch (codeGenTypeEnum) {
-            case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML,appId);
-            }
-            case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE,appId);
-            }
+        // 小修改使用快速模型，首轮生成和大范围修改使用强模型
+        ModelTierClassifier.TierDecision tierDecision = modelTierSelector.select(appId, codeGenTypeEnum, userMessage);
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum,
+                tierDecision.tier());
+        Flux<String> resultStream = switch (codeGenTypeEnum) {
+            case HTML -> generateCodeStream(userMessage, CodeGenTypeEnum.HTML, appId,
+                    message -> aiCodeGeneratorService.generateHtmlCodeStream(appId, message));
+            case MULTI_FILE -> generateCodeStream(userMessage, CodeGenTypeEnum.MULTI_FILE, appId,
+                    message -> aiCodeGeneratorService.generateMultiFileCodeStream(appId, message));
             case VUE_PROJECT -> {
+                // 首轮生成前克隆已安装依赖的脚手架，模型只需要生成业务相关的文件
+                vueProjectScaffolder.materialize(AppConstant.CODE_OUTPUT_ROOT_DIR + "/vue_project_" + appId);
                 TokenStream codeStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId,userMessage);
                 yield processTokenStream(codeStream);
             }
@@ -92,6 +160,131 @@ public class AiCodeGeneratorFacade {
                 throw new BusinessException(ErrorCode.PARAMS_ERROR, errorMessage);
             }
         };
+        return modelTierSelector.recordOutcome(tierDecision, codeGenTypeEnum, appId, resultStream)
+                // 生成结束（包括补丁失败后的重新生成）后淘汰记忆实例，避免所有用过的应用常驻内存
+                .doFinally(signalType -> aiCodeGeneratorFactory.evictChatMemory(appId));
+    }
+
+    /**
+     * HTML、多文件模式：已有代码时附加当前文件，允许模型只输出补丁；否则按首轮生成处理（优先使用缓存）
+     */
+    private Flux<String> generateCodeStream(String userMessage, CodeGenTypeEnum codeGenType, Long appId,
+                                            Function<String, Flux<String>> generator) {
+        String currentFiles = readCurrentFiles(codeGenType, appId);
+        if (currentFiles == null) {
+            Flux<String> codeStream = generateWithCache(userMessage, codeGenType, appId, generator);
+            return processCodeStream(codeStream, codeGenType, appId, null);
+        }
+        // 补丁只对当前文件有效，不经过缓存；当前文件只在本轮发送，不写入对话记忆，避免每轮都保存一份文件副本
+        String editPrompt = PrefixStableChatMemory.withTransientContext(userMessage, EDIT_PROMPT_PREFIX + currentFiles);
+        return processCodeStream(generator.apply(editPrompt), codeGenType, appId,
+                () -> generator.apply(PrefixStableChatMemory.withTransientContext(FULL_REGENERATION_PROMPT,
+                        CURRENT_FILES_PREFIX + currentFiles)));
+    }
+
+    /**
+     * 读取当前文件并拼接成代码块，没有已生成的代码、未开启补丁编辑或文件过大时返回 null
+     */
+    private String readCurrentFiles(CodeGenTypeEnum codeGenType, Long appId) {
+        if (!Boolean.TRUE.equals(codeEditConfig.getEnabled())) {
+            return null;
+        }
+        Path codeDir = CodePatchApplier.getCodeDir(codeGenType, appId);
+        StringBuilder files = new StringBuilder();
+        int fileChars = 0;
+        for (Map.Entry<String, String> entry : EDITABLE_FILES.get(codeGenType).entrySet()) {
+            Path file = codeDir.resolve(entry.getKey());
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            String content;
+            try {
+                content = Files.readString(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                log.error("读取当前文件失败，按完整生成处理，appId:{}", appId, e);
+                return null;
+            }
+            fileChars += content.length();
+            files.append('\n').append(entry.getKey()).append("\n```").append(entry.getValue()).append('\n')
+                    .append(content).append("\n```\n");
+        }
+        if (fileChars == 0 || fileChars > codeEditConfig.getMaxFileChars()) {
+            return null;
+        }
+        return files.toString();
+    }
+
+    private static Map<String, String> orderedMap(String... keyValues) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put(keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+
+    /**
+     * 首轮生成优先使用缓存：
+     * 1. 精确命中或语义高度相似时回放缓存内容并写入对话记忆
+     * 2. 语义较为相似时把缓存结果作为参考实现附加到提示词中
+     * 3. 调用模型后缓存完整输出，并把提示词加入语义索引
+     */
+    private Flux<String> generateWithCache(String userMessage, CodeGenTypeEnum codeGenType, Long appId,
+                                           Function<String, Flux<String>> generator) {
+        if (!codeGenResponseCache.isCacheable(appId, codeGenType)) {
+            return generator.apply(userMessage);
+        }
+        String cacheKey = codeGenResponseCache.buildKey(codeGenType, userMessage);
+        String cachedResponse = codeGenResponseCache.get(cacheKey);
+        if (cachedResponse != null) {
+            log.info("命中生成结果缓存，appId:{}，codeGenType:{}", appId, codeGenType.getValue());
+            return replayCachedResponse(appId, codeGenType, userMessage, cachedResponse);
+        }
+        String prompt = userMessage;
+        SemanticPromptCache.SemanticMatch semanticMatch = lookupSemanticCache(codeGenType, userMessage);
+        if (semanticMatch != null) {
+            String similarResponse = codeGenResponseCache.get(semanticMatch.cacheKey());
+            if (similarResponse != null && semanticMatch.servable()) {
+                log.info("命中语义缓存，appId:{}，相似度:{}", appId, semanticMatch.similarity());
+                return replayCachedResponse(appId, codeGenType, userMessage, similarResponse);
+            }
+            if (similarResponse != null) {
+                log.info("使用相似需求的结果作为参考实现，appId:{}，相似度:{}", appId, semanticMatch.similarity());
+                // 参考实现只在本轮发送，不写入对话记忆
+                prompt = PrefixStableChatMemory.withTransientContext(userMessage, SCAFFOLD_PROMPT_PREFIX + similarResponse);
+            }
+        }
+        StringBuilder responseBuilder = new StringBuilder();
+        return generator.apply(prompt)
+                .doOnNext(responseBuilder::append)
+                .doOnComplete(() -> {
+                    codeGenResponseCache.put(cacheKey, responseBuilder.toString());
+                    addToSemanticCache(codeGenType, userMessage, cacheKey);
+                });
+    }
+
+    private Flux<String> replayCachedResponse(Long appId, CodeGenTypeEnum codeGenType, String userMessage, String cachedResponse) {
+        return codeGenResponseCache.replay(cachedResponse)
+                .doOnComplete(() -> codeGenResponseCache.writeMemory(appId, codeGenType, userMessage, cachedResponse));
+    }
+
+    /**
+     * 语义缓存只是优化，失败时按未命中处理
+     */
+    private SemanticPromptCache.SemanticMatch lookupSemanticCache(CodeGenTypeEnum codeGenType, String userMessage) {
+        try {
+            return semanticPromptCache.lookup(codeGenType, userMessage);
+        } catch (Exception e) {
+            log.error("查询语义缓存失败", e);
+            return null;
+        }
+    }
+
+    private void addToSemanticCache(CodeGenTypeEnum codeGenType, String userMessage, String cacheKey) {
+        try {
+            semanticPromptCache.add(codeGenType, userMessage, cacheKey);
+        } catch (Exception e) {
+            log.error("写入语义缓存失败", e);
+        }
     }
 
     private Flux<String> processTokenStream(TokenStream tokenStream) {
@@ -123,7 +316,13 @@ public class AiCodeGeneratorFacade {
     }
 
 
-    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType,Long appId) {
+    /**
+     * 流式返回完成后保存代码；编辑模式下输出为补丁时应用补丁，补丁无法应用则追加一次完整生成
+     *
+     * @param fullRegeneration 完整生成，非编辑模式为 null
+     */
+    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId,
+                                           Supplier<Flux<String>> fullRegeneration) {
 
         // 字符串拼接器，用于流式返回完成之后再保存代码
         StringBuilder codeBuilder = new StringBuilder();
@@ -131,22 +330,42 @@ public class AiCodeGeneratorFacade {
         return codeStream.doOnNext(chunk -> {
             // 将每个代码块追加到字符串构建器中
             codeBuilder.append(chunk);
-        }).doOnComplete(() -> {
-            try {
-                //流式返回完成后保存代码
-                // 将拼接的完整HTML代码转换为字符串
-                String completeCode = codeBuilder.toString();
-                //解析代码为对象
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-                //保存代码到文件
-                File saveDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
-                // 记录保存成功的日志
-                log.info("保存成功！保存目录:{}", saveDir.getAbsolutePath());
-            } catch (Exception e) {
-                // 记录保存失败的日志
-                log.error("保存失败！", e.getMessage());
+        }).concatWith(Flux.defer(() -> {
+            String completeCode = codeBuilder.toString();
+            if (fullRegeneration != null && CodePatchParser.containsPatch(completeCode)) {
+                return applyPatchOrRegenerate(completeCode, codeGenType, appId, fullRegeneration);
             }
-        });
+            saveCode(completeCode, codeGenType, appId);
+            return Flux.empty();
+        }));
+    }
+
+    private Flux<String> applyPatchOrRegenerate(String completeCode, CodeGenTypeEnum codeGenType, Long appId,
+                                                Supplier<Flux<String>> fullRegeneration) {
+        try {
+            List<CodePatchParser.SearchReplaceBlock> blocks = CODE_PATCH_PARSER.parseCode(completeCode);
+            File codeDir = CodePatchApplier.applyPatches(blocks, codeGenType, appId);
+            log.info("补丁应用成功，appId:{}，补丁块:{}，目录:{}", appId, blocks.size(), codeDir.getAbsolutePath());
+            return Flux.empty();
+        } catch (Exception e) {
+            log.warn("补丁应用失败，重新生成完整代码，appId:{}，原因:{}", appId, e.getMessage());
+            return Flux.just(PATCH_FALLBACK_NOTICE)
+                    .concatWith(processCodeStream(fullRegeneration.get(), codeGenType, appId, null));
+        }
+    }
+
+    private void saveCode(String completeCode, CodeGenTypeEnum codeGenType, Long appId) {
+        try {
+            //解析代码为对象
+            Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
+            //保存代码到文件
+            File saveDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
+            // 记录保存成功的日志
+            log.info("保存成功！保存目录:{}", saveDir.getAbsolutePath());
+        } catch (Exception e) {
+            // 记录保存失败的日志
+            log.error("保存失败！", e.getMessage());
+        }
     }
 
 
@@ -75,6 +75,16 @@ public class VueProjectBuilder {
         return true;
     }
 
+    /**
+     * 只安装依赖，不构建（用于准备项目脚手架）
+     *
+     * @param projectPath 项目根目录路径
+     * @return 是否安装成功
+     */
+    public boolean installDependencies(String projectPath) {
+        return executeNpmInstall(new File(projectPath));
+    }
+
     /**
      * 执行 npm install 命令
      */
@@ -0,0 +1,190 @@
+package com.paul.appgen.core.cache;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paul.appgen.ai.memory.PrefixStableChatMemory;
+import com.paul.appgen.ai.prompt.PromptRegistry;
+import com.paul.appgen.ai.router.ModelRouterRegistry;
+import com.paul.appgen.config.CodeGenCacheConfig;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 生成结果缓存（精确匹配）
+ * 很多应用的初始提示词几乎相同，对话记忆为空的首轮生成结果只取决于系统提示词、生成类型、模型参数和用户消息，
+ * 按这些内容的哈希缓存完整输出：本地缓存按字符数限制容量，Redis 缓存多实例共享。
+ * 命中时按分片回放缓存内容，并手动写入对话记忆，后续对话与真实生成一致。
+ * key 中的模型参数来自默认模型，开启多服务商路由后实际服务的模型不确定，此时不使用缓存
+ */
+@Slf4j
+@Component
+public class CodeGenResponseCache {
+
+    private static final String CACHE_KEY_PREFIX = "gen:cache:";
+
+    /**
+     * 支持缓存的生成类型
+     */
+    private static final Set<CodeGenTypeEnum> CACHEABLE_TYPES = Set.of(CodeGenTypeEnum.HTML, CodeGenTypeEnum.MULTI_FILE);
+
+    @Resource
+    private CodeGenCacheConfig codeGenCacheConfig;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisChatMemoryStore redisChatMemoryStore;
+
+    @Resource
+    private PromptRegistry promptRegistry;
+
+    /**
+     * 开启多服务商路由（app.model-router.enabled）时存在
+     */
+    @Resource
+    private ObjectProvider<ModelRouterRegistry> modelRouterRegistryProvider;
+
+    @Value("${langchain4j.open-ai.streaming-chat-model.model-name:}")
+    private String modelName;
+
+    @Value("${langchain4j.open-ai.streaming-chat-model.max-tokens:}")
+    private String maxTokens;
+
+    @Value("${langchain4j.open-ai.streaming-chat-model.temperature:}")
+    private String temperature;
+
+    private Cache<String, String> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumWeight(codeGenCacheConfig.getLocalMaxChars())
+                .<String, String>weigher((key, value) -> value.length())
+                .build();
+    }
+
+    /**
+     * 本次生成是否可以使用缓存：已开启缓存、类型支持、没有经过多服务商路由，并且对话记忆中还没有 AI 回复
+     *
+     * @param appId       应用ID
+     * @param codeGenType 生成类型
+     * @return 是否可以使用缓存
+     */
+    public boolean isCacheable(long appId, CodeGenTypeEnum codeGenType) {
+        if (!Boolean.TRUE.equals(codeGenCacheConfig.getEnabled()) || !CACHEABLE_TYPES.contains(codeGenType)) {
+            return false;
+        }
+        // 路由到其他服务商时输出来自不同的模型，不能按默认模型的 key 读写
+        ModelRouterRegistry modelRouterRegistry = modelRouterRegistryProvider.getIfAvailable();
+        if (modelRouterRegistry != null && modelRouterRegistry.get(ModelRouterRegistry.GROUP_CODE) != null) {
+            return false;
+        }
+        // 记忆水合时会带入本轮已保存的用户消息，所以按是否有 AI 回复判断首轮
+        return redisChatMemoryStore.getMessages(appId).stream().noneMatch(AiMessage.class::isInstance);
+    }
+
+    /**
+     * 计算缓存 key
+     *
+     * @param codeGenType 生成类型
+     * @param userMessage 用户消息
+     * @return 缓存 key
+     */
+    public String buildKey(CodeGenTypeEnum codeGenType, String userMessage) {
+        // 包含系统提示词哈希，提示词修改（包括热加载）后旧缓存自然失效
+        String normalizedMessage = StrUtil.trimToEmpty(userMessage).replaceAll("\\s+", " ");
+        String raw = String.join("\n", promptRegistry.getSystemPrompt(codeGenType).hash(), codeGenType.getValue(),
+                modelName, maxTokens, temperature, normalizedMessage);
+        return CACHE_KEY_PREFIX + SecureUtil.sha256(raw);
+    }
+
+    /**
+     * 读取缓存，本地未命中时读取 Redis 并回填本地
+     *
+     * @param cacheKey 缓存 key
+     * @return 缓存的完整输出，未命中返回 null
+     */
+    public String get(String cacheKey) {
+        String response = localCache.getIfPresent(cacheKey);
+        if (response != null) {
+            return response;
+        }
+        try {
+            response = stringRedisTemplate.opsForValue().get(cacheKey);
+        } catch (Exception e) {
+            log.error("读取生成结果缓存失败", e);
+            return null;
+        }
+        if (response != null) {
+            localCache.put(cacheKey, response);
+        }
+        return response;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param cacheKey 缓存 key
+     * @param response 完整输出
+     */
+    public void put(String cacheKey, String response) {
+        if (StrUtil.isBlank(response)) {
+            return;
+        }
+        localCache.put(cacheKey, response);
+        try {
+            stringRedisTemplate.opsForValue().set(cacheKey, response, codeGenCacheConfig.getRedisTtl());
+        } catch (Exception e) {
+            log.error("写入生成结果缓存失败", e);
+        }
+    }
+
+    /**
+     * 把缓存内容按分片回放为流
+     *
+     * @param response 完整输出
+     * @return 分片流
+     */
+    public Flux<String> replay(String response) {
+        int chunkSize = codeGenCacheConfig.getReplayChunkSize();
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < response.length(); i += chunkSize) {
+            chunks.add(response.substring(i, Math.min(i + chunkSize, response.length())));
+        }
+        return Flux.fromIterable(chunks).delayElements(codeGenCacheConfig.getReplayInterval());
+    }
+
+    /**
+     * 命中缓存时没有经过 AI 服务，按 AI 服务的方式把本轮对话写入记忆
+     *
+     * @param appId       应用ID
+     * @param codeGenType 生成类型
+     * @param userMessage 用户消息
+     * @param response    完整输出
+     */
+    public void writeMemory(long appId, CodeGenTypeEnum codeGenType, String userMessage, String response) {
+        ChatMemory chatMemory = PrefixStableChatMemory.create(appId, redisChatMemoryStore);
+        chatMemory.add(SystemMessage.from(promptRegistry.getSystemPrompt(codeGenType).text()));
+        chatMemory.add(UserMessage.from(userMessage));
+        chatMemory.add(AiMessage.from(response));
+    }
+}
@@ -0,0 +1,147 @@
+package com.paul.appgen.core.cache;
+
+import cn.hutool.core.util.StrUtil;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * 语义提示词缓存
+ * 精确匹配只能命中完全相同的提示词，这里用本地向量模型计算提示词向量并建立内存索引，
+ * 查找与新提示词最相似的已缓存提示词：相似度很高时直接复用结果，较高时作为参考实现缩短生成。
+ * 索引只保存提示词向量和精确缓存的 key，生成结果仍由 CodeGenResponseCache 保存
+ */
+public class SemanticPromptCache {
+
+    private static final String METADATA_CODE_GEN_TYPE = "codeGenType";
+
+    private static final String METADATA_CACHE_KEY = "cacheKey";
+
+    /**
+     * 余弦相似度不会超过 1，用作直接复用阈值时从不直接复用
+     */
+    public static final double SERVE_DISABLED = Double.POSITIVE_INFINITY;
+
+    private final EmbeddingModel embeddingModel;
+
+    private final double serveThreshold;
+
+    private final double scaffoldThreshold;
+
+    private final int maxEntries;
+
+    /**
+     * 数据量在几千条以内，精确的暴力检索足够快，也不存在近似索引的召回损失
+     */
+    private final InMemoryEmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+
+    /**
+     * 按加入顺序记录的索引ID，用于淘汰
+     */
+    private final Deque<String> entryIds = new ArrayDeque<>();
+
+    /**
+     * @param embeddingModel    向量模型，为 null 时语义缓存关闭
+     * @param serveThreshold    直接复用结果的余弦相似度阈值，{@link #SERVE_DISABLED} 表示不直接复用
+     * @param scaffoldThreshold 作为参考实现的余弦相似度阈值
+     * @param maxEntries        索引最大条数
+     */
+    public SemanticPromptCache(EmbeddingModel embeddingModel, double serveThreshold, double scaffoldThreshold, int maxEntries) {
+        this.embeddingModel = embeddingModel;
+        this.serveThreshold = serveThreshold;
+        this.scaffoldThreshold = scaffoldThreshold;
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return embeddingModel != null;
+    }
+
+    /**
+     * 查找最相似的已缓存提示词
+     *
+     * @param codeGenType 生成类型
+     * @param userMessage 用户消息
+     * @return 相似度达到参考阈值的结果，没有时返回 null
+     */
+    public SemanticMatch lookup(CodeGenTypeEnum codeGenType, String userMessage) {
+        if (!isEnabled() || StrUtil.isBlank(userMessage)) {
+            return null;
+        }
+        Embedding embedding = embeddingModel.embed(normalize(userMessage)).content();
+        EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
+                .queryEmbedding(embedding)
+                .maxResults(1)
+                .minScore(toRelevanceScore(scaffoldThreshold))
+                .filter(metadataKey(METADATA_CODE_GEN_TYPE).isEqualTo(codeGenType.getValue()))
+                .build();
+        List<EmbeddingMatch<TextSegment>> matches = embeddingStore.search(searchRequest).matches();
+        if (matches.isEmpty()) {
+            return null;
+        }
+        EmbeddingMatch<TextSegment> match = matches.getFirst();
+        double similarity = toCosineSimilarity(match.score());
+        return new SemanticMatch(match.embedded().metadata().getString(METADATA_CACHE_KEY), similarity,
+                similarity >= serveThreshold);
+    }
+
+    /**
+     * 加入索引
+     *
+     * @param codeGenType 生成类型
+     * @param userMessage 用户消息
+     * @param cacheKey    精确缓存的 key
+     */
+    public void add(CodeGenTypeEnum codeGenType, String userMessage, String cacheKey) {
+        if (!isEnabled() || StrUtil.isBlank(userMessage)) {
+            return;
+        }
+        String text = normalize(userMessage);
+        Embedding embedding = embeddingModel.embed(text).content();
+        TextSegment segment = TextSegment.from(text, new Metadata()
+                .put(METADATA_CODE_GEN_TYPE, codeGenType.getValue())
+                .put(METADATA_CACHE_KEY, cacheKey));
+        synchronized (entryIds) {
+            entryIds.addLast(embeddingStore.add(embedding, segment));
+            while (entryIds.size() > maxEntries) {
+                embeddingStore.remove(entryIds.removeFirst());
+            }
+        }
+    }
+
+    private String normalize(String userMessage) {
+        return StrUtil.trim(userMessage).replaceAll("\\s+", " ");
+    }
+
+    /**
+     * InMemoryEmbeddingStore 的分数是 (余弦相似度 + 1) / 2
+     */
+    private double toRelevanceScore(double cosineSimilarity) {
+        return (cosineSimilarity + 1) / 2;
+    }
+
+    private double toCosineSimilarity(double relevanceScore) {
+        return relevanceScore * 2 - 1;
+    }
+
+    /**
+     * 语义匹配结果
+     *
+     * @param cacheKey   精确缓存的 key
+     * @param similarity 余弦相似度
+     * @param servable   是否可以直接复用结果，否则只作为参考实现
+     */
+    public record SemanticMatch(String cacheKey, double similarity, boolean servable) {
+    }
+}
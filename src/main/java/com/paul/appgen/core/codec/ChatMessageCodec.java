@@ -0,0 +1,112 @@
+package com.paul.appgen.core.codec;
+
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.model.entity.ChatHistory;
+import com.paul.appgen.model.enums.ChatMessageCodecEnum;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 对话消息编解码器
+ * 超过阈值的消息（通常是 AI 生成的整页代码）压缩后存入 messageZip，message 置空；
+ * 读取时只在真正需要消息内容的地方解码
+ */
+public class ChatMessageCodec {
+
+    /**
+     * 压缩阈值（字节），小消息压缩收益不明显
+     */
+    public static final int COMPRESS_THRESHOLD_BYTES = 4 * 1024;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private ChatMessageCodec() {
+    }
+
+    /**
+     * 写入前编码，消息超过阈值且压缩后更小时才压缩
+     *
+     * @param chatHistory 对话历史
+     * @return 同一个对象
+     */
+    public static ChatHistory encode(ChatHistory chatHistory) {
+        String message = chatHistory.getMessage();
+        byte[] raw = message == null ? new byte[0] : message.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < COMPRESS_THRESHOLD_BYTES) {
+            chatHistory.setMessageCodec(ChatMessageCodecEnum.PLAIN.getValue());
+            return chatHistory;
+        }
+        byte[] compressed = deflate(raw);
+        if (compressed.length >= raw.length) {
+            chatHistory.setMessageCodec(ChatMessageCodecEnum.PLAIN.getValue());
+            return chatHistory;
+        }
+        chatHistory.setMessage(null);
+        chatHistory.setMessageZip(compressed);
+        chatHistory.setMessageCodec(ChatMessageCodecEnum.DEFLATE.getValue());
+        return chatHistory;
+    }
+
+    /**
+     * 读取后解码，已解码或明文存储的记录直接返回
+     *
+     * @param chatHistory 对话历史
+     * @return 同一个对象
+     */
+    public static ChatHistory decode(ChatHistory chatHistory) {
+        if (chatHistory == null || chatHistory.getMessageZip() == null) {
+            return chatHistory;
+        }
+        ChatMessageCodecEnum codecEnum = ChatMessageCodecEnum.getEnumByValue(chatHistory.getMessageCodec());
+        if (codecEnum != ChatMessageCodecEnum.DEFLATE) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的消息编码：" + chatHistory.getMessageCodec());
+        }
+        chatHistory.setMessage(new String(inflate(chatHistory.getMessageZip()), StandardCharsets.UTF_8));
+        chatHistory.setMessageZip(null);
+        chatHistory.setMessageCodec(ChatMessageCodecEnum.PLAIN.getValue());
+        return chatHistory;
+    }
+
+    static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(raw.length / 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new BusinessException(ErrorCode.SYSTEM_ERROR, "压缩消息数据不完整");
+                }
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } catch (DataFormatException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "压缩消息解码失败");
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.paul.appgen.core.parser;
+
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 补丁解析器（SEARCH/REPLACE 块）
+ * 每个块前一行为文件名，格式：
+ * <pre>
+ * index.html
+ * &lt;&lt;&lt;&lt;&lt;&lt;&lt; SEARCH
+ * 原内容
+ * =======
+ * 新内容
+ * &gt;&gt;&gt;&gt;&gt;&gt;&gt; REPLACE
+ * </pre>
+ */
+public class CodePatchParser implements CodeParser<List<CodePatchParser.SearchReplaceBlock>> {
+
+    public static final String SEARCH_MARKER = "<<<<<<< SEARCH";
+
+    public static final String DIVIDER_MARKER = "=======";
+
+    public static final String REPLACE_MARKER = ">>>>>>> REPLACE";
+
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("[\\w./-]+\\.[A-Za-z0-9]+");
+
+    /**
+     * 输出中是否包含补丁
+     *
+     * @param codeContent 模型输出
+     * @return 是否包含补丁
+     */
+    public static boolean containsPatch(String codeContent) {
+        return codeContent != null && codeContent.contains(SEARCH_MARKER) && codeContent.contains(REPLACE_MARKER);
+    }
+
+    /**
+     * 解析补丁块，格式不完整时抛出异常
+     *
+     * @param codeContent 模型输出
+     * @return 补丁块，缺少文件名的块 fileName 为 null
+     */
+    @Override
+    public List<SearchReplaceBlock> parseCode(String codeContent) {
+        List<SearchReplaceBlock> blocks = new ArrayList<>();
+        String[] lines = codeContent.split("\r?\n", -1);
+        String fileName = null;
+        int i = 0;
+        while (i < lines.length) {
+            String line = lines[i].strip();
+            if (!line.equals(SEARCH_MARKER)) {
+                // 文件名取补丁块前最近的非空行，跳过代码块围栏
+                if (!line.isEmpty() && !line.startsWith("```")) {
+                    fileName = extractFileName(line);
+                }
+                i++;
+                continue;
+            }
+            List<String> searchLines = new ArrayList<>();
+            List<String> replaceLines = new ArrayList<>();
+            i++;
+            while (i < lines.length && !lines[i].strip().equals(DIVIDER_MARKER)) {
+                searchLines.add(lines[i++]);
+            }
+            i++;
+            while (i < lines.length && !lines[i].strip().equals(REPLACE_MARKER)) {
+                replaceLines.add(lines[i++]);
+            }
+            if (i >= lines.length) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "补丁格式不完整");
+            }
+            i++;
+            blocks.add(new SearchReplaceBlock(fileName, String.join("\n", searchLines), String.join("\n", replaceLines)));
+            fileName = null;
+        }
+        return blocks;
+    }
+
+    /**
+     * 文件名行可能带有 Markdown 标记或说明文字，取最后一个像文件名的片段
+     */
+    private String extractFileName(String line) {
+        String[] tokens = line.replaceAll("[`*#:：]", " ").trim().split("\\s+");
+        String lastToken = tokens[tokens.length - 1];
+        return FILE_NAME_PATTERN.matcher(lastToken).matches() ? lastToken : null;
+    }
+
+    /**
+     * 补丁块
+     *
+     * @param fileName 文件名
+     * @param search   原内容，为空表示新建文件
+     * @param replace  新内容
+     */
+    public record SearchReplaceBlock(String fileName, String search, String replace) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.paul.appgen.core.saver;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.paul.appgen.constant.AppConstant;
+import com.paul.appgen.core.parser.CodePatchParser;
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 补丁应用器
+ * 先在内存中校验并应用全部补丁块（原内容必须在文件中恰好出现一次），任一块失败则不修改任何文件；
+ * 全部成功后每个文件先写临时文件再原子替换，预览时不会读到写了一半的文件
+ */
+public class CodePatchApplier {
+
+    /**
+     * 各生成类型允许修改的文件，与保存器保持一致
+     */
+    private static final Map<CodeGenTypeEnum, Set<String>> ALLOWED_FILES = Map.of(
+            CodeGenTypeEnum.HTML, Set.of("index.html"),
+            CodeGenTypeEnum.MULTI_FILE, Set.of("index.html", "style.css", "script.js")
+    );
+
+    /**
+     * 缺少文件名时默认修改的文件
+     */
+    private static final String DEFAULT_FILE_NAME = "index.html";
+
+    /**
+     * 把补丁应用到应用的代码目录
+     *
+     * @param blocks      补丁块
+     * @param codeGenType 生成类型
+     * @param appId       应用ID
+     * @return 代码目录
+     */
+    public static File applyPatches(List<CodePatchParser.SearchReplaceBlock> blocks, CodeGenTypeEnum codeGenType, Long appId) {
+        Set<String> allowedFiles = ALLOWED_FILES.get(codeGenType);
+        if (allowedFiles == null) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        }
+        Path baseDir = getCodeDir(codeGenType, appId);
+        applyPatches(blocks, baseDir, allowedFiles);
+        return baseDir.toFile();
+    }
+
+    /**
+     * 应用的代码目录，与 CodeFileSaverTemplate 的保存目录一致
+     *
+     * @param codeGenType 生成类型
+     * @param appId       应用ID
+     * @return 代码目录
+     */
+    public static Path getCodeDir(CodeGenTypeEnum codeGenType, Long appId) {
+        return Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, StrUtil.format("{}_{}", codeGenType.getValue(), appId));
+    }
+
+    static void applyPatches(List<CodePatchParser.SearchReplaceBlock> blocks, Path baseDir, Set<String> allowedFiles) {
+        if (blocks.isEmpty()) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "补丁为空");
+        }
+        // 文件名 -> 修改后的内容
+        Map<String, String> patchedFiles = new LinkedHashMap<>();
+        for (CodePatchParser.SearchReplaceBlock block : blocks) {
+            String fileName = block.fileName() != null ? block.fileName() : DEFAULT_FILE_NAME;
+            if (!allowedFiles.contains(fileName)) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "补丁修改了不允许的文件: " + fileName);
+            }
+            String content = patchedFiles.containsKey(fileName) ? patchedFiles.get(fileName) : readFile(baseDir.resolve(fileName));
+            patchedFiles.put(fileName, applyBlock(fileName, content, block));
+        }
+        try {
+            for (Map.Entry<String, String> entry : patchedFiles.entrySet()) {
+                Path target = baseDir.resolve(entry.getKey());
+                Path tempFile = baseDir.resolve("." + entry.getKey() + ".patch-" + IdUtil.fastSimpleUUID());
+                Files.writeString(tempFile, entry.getValue(), StandardCharsets.UTF_8);
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "写入补丁失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 原内容为空时只能新建文件；否则原内容必须恰好出现一次，避免改错位置
+     */
+    private static String applyBlock(String fileName, String content, CodePatchParser.SearchReplaceBlock block) {
+        if (StrUtil.isBlank(block.search())) {
+            if (content != null) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "补丁原内容为空，但文件已存在: " + fileName);
+            }
+            return block.replace();
+        }
+        if (content == null) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "补丁修改的文件不存在: " + fileName);
+        }
+        int index = content.indexOf(block.search());
+        if (index < 0) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "补丁原内容在文件中不存在: " + fileName);
+        }
+        if (content.indexOf(block.search(), index + 1) >= 0) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "补丁原内容在文件中出现多次: " + fileName);
+        }
+        return content.substring(0, index) + block.replace() + content.substring(index + block.search().length());
+    }
+
+    /**
+     * 读取文件，统一换行符，文件不存在时返回 null
+     */
+    private static String readFile(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return Files.readString(path, StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取文件失败: " + path.getFileName());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.paul.appgen.core.scaffold;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.paul.appgen.constant.AppConstant;
+import com.paul.appgen.core.builder.VueProjectBuilder;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vue 项目脚手架
+ * 启动时把 resources/scaffold/vue 下的模板写入脚手架目录并执行一次 npm install，
+ * 新应用首轮生成前把脚手架克隆到项目目录，模型只需要生成业务相关的文件：
+ * 模板文件复制（模型可能修改），node_modules 使用硬链接（不占额外空间，构建时 npm install 几乎不用下载）
+ */
+@Slf4j
+@Component
+public class VueProjectScaffolder {
+
+    private static final String TEMPLATE_RESOURCE_DIR = "scaffold/vue/";
+
+    /**
+     * 模板文件，与 resources/scaffold/vue 保持一致
+     */
+    private static final List<String> TEMPLATE_FILES = List.of(
+            "package.json",
+            "vite.config.js",
+            "index.html",
+            "src/main.js",
+            "src/App.vue",
+            "src/router/index.js",
+            "src/pages/HomePage.vue"
+    );
+
+    /**
+     * 依赖安装成功后写入的标记文件
+     */
+    private static final String READY_MARKER = ".scaffold-ready";
+
+    private static final String NODE_MODULES = "node_modules";
+
+    @Resource
+    private VueProjectBuilder vueProjectBuilder;
+
+    /**
+     * 已就绪的脚手架目录，未就绪时为 null
+     */
+    private volatile Path scaffoldDir;
+
+    /**
+     * 启动后在虚拟线程中准备脚手架，未就绪前的生成照常由模型写全部文件
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        Thread.ofVirtual().name("vue-scaffold-init").start(() -> {
+            try {
+                prepareScaffoldDir();
+            } catch (Exception e) {
+                log.error("准备 Vue 项目脚手架失败", e);
+            }
+        });
+    }
+
+    /**
+     * 在项目目录不存在时（首轮生成）克隆脚手架
+     *
+     * @param projectPath 项目目录
+     * @return 是否已克隆脚手架
+     */
+    public boolean materialize(String projectPath) {
+        Path sourceDir = scaffoldDir;
+        Path targetDir = Paths.get(projectPath);
+        if (sourceDir == null || Files.exists(targetDir)) {
+            return false;
+        }
+        // 先克隆到临时目录再整体移动，避免留下不完整的项目目录
+        Path tempDir = targetDir.resolveSibling(targetDir.getFileName() + ".scaffold-" + IdUtil.fastSimpleUUID());
+        try {
+            cloneTree(sourceDir, tempDir);
+            Files.move(tempDir, targetDir, StandardCopyOption.ATOMIC_MOVE);
+            log.info("已为项目 {} 克隆 Vue 脚手架", projectPath);
+            return true;
+        } catch (IOException e) {
+            log.error("克隆 Vue 脚手架失败：{}", projectPath, e);
+            FileUtil.del(tempDir);
+            return false;
+        }
+    }
+
+    /**
+     * 脚手架目录名包含模板内容的哈希，模板修改后会重新准备
+     */
+    private void prepareScaffoldDir() throws IOException {
+        Map<String, String> templates = new LinkedHashMap<>();
+        StringBuilder versionSource = new StringBuilder();
+        for (String templateFile : TEMPLATE_FILES) {
+            String content = ResourceUtil.readUtf8Str(TEMPLATE_RESOURCE_DIR + templateFile);
+            templates.put(templateFile, content);
+            versionSource.append(templateFile).append('\0').append(content).append('\0');
+        }
+        String version = SecureUtil.sha256(versionSource.toString()).substring(0, 12);
+        Path dir = Paths.get(AppConstant.SCAFFOLD_ROOT_DIR, "vue_" + version);
+        if (Files.exists(dir.resolve(READY_MARKER))) {
+            scaffoldDir = dir;
+            log.info("Vue 项目脚手架已就绪：{}", dir);
+            return;
+        }
+        FileUtil.del(dir);
+        templates.forEach((templateFile, content) -> FileUtil.writeUtf8String(content, dir.resolve(templateFile).toFile()));
+        if (!vueProjectBuilder.installDependencies(dir.toString())) {
+            log.error("Vue 项目脚手架安装依赖失败，首轮生成不使用脚手架");
+            return;
+        }
+        Files.writeString(dir.resolve(READY_MARKER), version);
+        scaffoldDir = dir;
+        log.info("Vue 项目脚手架准备完成：{}", dir);
+    }
+
+    private void cloneTree(Path sourceDir, Path targetDir) throws IOException {
+        Path nodeModulesDir = sourceDir.resolve(NODE_MODULES);
+        Files.walkFileTree(sourceDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(targetDir.resolve(sourceDir.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (file.getFileName().toString().equals(READY_MARKER)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Path target = targetDir.resolve(sourceDir.relativize(file));
+                if (attrs.isSymbolicLink()) {
+                    // node_modules/.bin 下是相对路径的符号链接，原样重建
+                    Files.createSymbolicLink(target, Files.readSymbolicLink(file));
+                } else if (file.startsWith(nodeModulesDir)) {
+                    linkOrCopy(file, target);
+                } else {
+                    Files.copy(file, target, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 依赖文件只读不写，使用硬链接共享；npm 更新依赖时会替换文件而不是原地修改，不会影响脚手架。
+     * 跨文件系统等不支持硬链接的情况下退化为复制
+     */
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.paul.appgen.job;
+
+import com.mybatisflex.core.row.Db;
+import com.paul.appgen.service.ChatHistoryService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 对话历史归档任务
+ * 1. 维护 chat_history 的月度分区
+ * 2. 将长时间没有新消息的冷会话迁移到磁盘归档
+ * 3. 物理清理逻辑删除已久的记录
+ */
+@Slf4j
+@Component
+public class ChatHistoryArchiveJob {
+
+    /**
+     * 会话多少天没有新消息视为冷会话
+     */
+    private static final int COLD_SESSION_DAYS = 30;
+
+    /**
+     * 逻辑删除多少天后物理清理
+     */
+    private static final int PURGE_DELETED_DAYS = 7;
+
+    /**
+     * 每轮归档的应用数量
+     */
+    private static final int ARCHIVE_APP_BATCH_SIZE = 100;
+
+    /**
+     * 每轮物理清理的记录数量
+     */
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    /**
+     * 提前创建的分区月数
+     */
+    private static final int PARTITION_MONTHS_AHEAD = 2;
+
+    private static final String JOB_LOCK_KEY = "chat_history:archive:lock";
+
+    private static final DateTimeFormatter PARTITION_NAME_FORMATTER = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    @Resource
+    private ChatHistoryService chatHistoryService;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 每天凌晨执行，多实例部署时只有抢到锁的实例执行
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void run() {
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(JOB_LOCK_KEY, "1", Duration.ofHours(1));
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("对话历史归档任务已在其他实例执行，跳过");
+            return;
+        }
+        try {
+            ensurePartitions();
+            archiveColdSessions();
+            purgeDeletedHistory();
+        } finally {
+            stringRedisTemplate.delete(JOB_LOCK_KEY);
+        }
+    }
+
+    /**
+     * 从 pmax 中拆分出未来几个月的分区，表未分区时跳过
+     */
+    private void ensurePartitions() {
+        try {
+            if (!partitionExists("pmax")) {
+                log.info("chat_history 未分区，跳过分区维护");
+                return;
+            }
+            LocalDate firstDayOfMonth = LocalDate.now().withDayOfMonth(1);
+            for (int i = 0; i <= PARTITION_MONTHS_AHEAD; i++) {
+                LocalDate month = firstDayOfMonth.plusMonths(i);
+                String partitionName = month.format(PARTITION_NAME_FORMATTER);
+                if (partitionExists(partitionName)) {
+                    continue;
+                }
+                Db.updateBySql(String.format(
+                        "alter table chat_history reorganize partition pmax into (" +
+                                "partition %s values less than ('%s'), partition pmax values less than (MAXVALUE))",
+                        partitionName, month.plusMonths(1)));
+                log.info("chat_history 新增分区 {}", partitionName);
+            }
+        } catch (Exception e) {
+            log.error("chat_history 分区维护失败", e);
+        }
+    }
+
+    private boolean partitionExists(String partitionName) {
+        return Db.selectCount("select count(*) from information_schema.partitions " +
+                "where table_schema = database() and table_name = 'chat_history' and partition_name = ?", partitionName) > 0;
+    }
+
+    /**
+     * 按应用ID游标分批归档冷会话，失败的应用不会被重复查出，留到下次任务重试
+     */
+    private void archiveColdSessions() {
+        LocalDateTime before = LocalDateTime.now().minusDays(COLD_SESSION_DAYS);
+        int archivedApps = 0;
+        int archivedMessages = 0;
+        long lastAppId = 0;
+        List<Long> coldAppIds;
+        do {
+            coldAppIds = chatHistoryService.listColdAppIds(before, lastAppId, ARCHIVE_APP_BATCH_SIZE);
+            for (Long appId : coldAppIds) {
+                lastAppId = appId;
+                try {
+                    archivedMessages += chatHistoryService.archiveByAppId(appId);
+                    archivedApps++;
+                } catch (Exception e) {
+                    log.error("归档 appId:{} 的对话历史失败", appId, e);
+                }
+            }
+        } while (coldAppIds.size() == ARCHIVE_APP_BATCH_SIZE);
+        log.info("对话历史归档完成，共归档 {} 个应用，{} 条消息", archivedApps, archivedMessages);
+    }
+
+    /**
+     * 物理清理已逻辑删除的记录
+     */
+    private void purgeDeletedHistory() {
+        LocalDateTime before = LocalDateTime.now().minusDays(PURGE_DELETED_DAYS);
+        int purged = 0;
+        int batchCount;
+        do {
+            batchCount = chatHistoryService.purgeDeletedHistory(before, PURGE_BATCH_SIZE);
+            purged += batchCount;
+        } while (batchCount == PURGE_BATCH_SIZE);
+        log.info("对话历史物理清理完成，共清理 {} 条", purged);
+    }
+}
@@ -0,0 +1,220 @@
+package com.paul.appgen.manager;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.mybatisflex.core.logicdelete.LogicDeleteManager;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.paul.appgen.ai.memory.ChatMemoryHydrator;
+import com.paul.appgen.constant.AppConstant;
+import com.paul.appgen.mapper.AppMapper;
+import com.paul.appgen.model.entity.App;
+import com.paul.appgen.model.enums.AppCleanupStatusEnum;
+import com.paul.appgen.model.vo.AppCleanupProgressVO;
+import com.paul.appgen.service.ChatHistoryService;
+import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 应用删除后的异步清理
+ * 应用记录删除后立即返回，关联数据在虚拟线程中逐步清理：
+ * 分批删除对话历史 -> 删除归档 -> 删除生成目录和部署目录 -> 清理 Redis 对话记忆
+ * 进度记录在 Redis 中，多实例下也能查询；清理完成后在应用记录上写入 cleanedTime，
+ * 重启丢失或失败的清理由定时任务扫描已删除且未标记的应用重试（各步骤都可重复执行）
+ */
+@Slf4j
+@Component
+public class AppCleanupManager {
+
+    /**
+     * 对话历史每批删除的条数
+     */
+    private static final int HISTORY_DELETE_BATCH_SIZE = 500;
+
+    private static final String PROGRESS_KEY_PREFIX = "app:cleanup:";
+
+    /**
+     * 清理进度保留时间
+     */
+    private static final Duration PROGRESS_TTL = Duration.ofDays(1);
+
+    /**
+     * 删除超过该时间仍未清理完成、且进度长时间没有更新的应用才重试，避免和正在进行的清理重复
+     */
+    private static final Duration RETRY_AFTER = Duration.ofMinutes(10);
+
+    /**
+     * 每次重试的应用数量
+     */
+    private static final int RETRY_BATCH_SIZE = 100;
+
+    private static final String RETRY_LOCK_KEY = "app:cleanup:retry:lock";
+
+    @Resource
+    private ChatHistoryService chatHistoryService;
+
+    @Resource
+    private ChatHistoryArchiveManager chatHistoryArchiveManager;
+
+    @Resource
+    private RedisChatMemoryStore redisChatMemoryStore;
+
+    @Resource
+    private ChatMemoryHydrator chatMemoryHydrator;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private AppMapper appMapper;
+
+    private final ExecutorService cleanupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 提交清理任务
+     *
+     * @param app 已删除的应用
+     */
+    public void submit(App app) {
+        Long appId = app.getId();
+        updateProgress(appId, AppCleanupStatusEnum.PENDING, "等待清理", 0, null);
+        cleanupExecutor.execute(() -> cleanup(app));
+    }
+
+    /**
+     * 查询清理进度
+     *
+     * @param appId 应用ID
+     * @return 清理进度，没有记录时返回 null
+     */
+    public AppCleanupProgressVO getProgress(long appId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(PROGRESS_KEY_PREFIX + appId);
+        if (entries.isEmpty()) {
+            return null;
+        }
+        AppCleanupProgressVO progressVO = new AppCleanupProgressVO();
+        progressVO.setAppId(appId);
+        progressVO.setStatus((String) entries.get("status"));
+        progressVO.setStep((String) entries.get("step"));
+        progressVO.setDeletedHistoryCount(Long.valueOf((String) entries.getOrDefault("deletedHistoryCount", "0")));
+        progressVO.setErrorMessage((String) entries.get("errorMessage"));
+        progressVO.setUpdateTime(Long.valueOf((String) entries.getOrDefault("updateTime", "0")));
+        return progressVO;
+    }
+
+    /**
+     * 重试未完成的清理，多实例部署时只有抢到锁的实例执行
+     */
+    @Scheduled(fixedDelay = 600000, initialDelay = 60000)
+    public void retryPendingCleanups() {
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(RETRY_LOCK_KEY, "1", RETRY_AFTER);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            LocalDateTime deletedBefore = LocalDateTime.now().minus(RETRY_AFTER);
+            List<App> pendingApps = LogicDeleteManager.execWithoutLogicDelete(() -> appMapper.selectListByQuery(QueryWrapper.create()
+                    .eq("isDelete", 1)
+                    .isNull("cleanedTime")
+                    .lt("updateTime", deletedBefore)
+                    .orderBy("id", true)
+                    .limit(RETRY_BATCH_SIZE)));
+            long now = System.currentTimeMillis();
+            for (App app : pendingApps) {
+                AppCleanupProgressVO progress = getProgress(app.getId());
+                // 其他实例正在清理（进度仍在更新）时跳过
+                if (progress != null && AppCleanupStatusEnum.RUNNING.getValue().equals(progress.getStatus())
+                        && now - progress.getUpdateTime() < RETRY_AFTER.toMillis()) {
+                    continue;
+                }
+                log.info("重试应用 {} 的关联数据清理", app.getId());
+                submit(app);
+            }
+        } catch (Exception e) {
+            log.error("扫描未完成的应用清理失败", e);
+        } finally {
+            stringRedisTemplate.delete(RETRY_LOCK_KEY);
+        }
+    }
+
+    private void cleanup(App app) {
+        Long appId = app.getId();
+        long deletedHistoryCount = 0;
+        try {
+            // 1. 分批删除对话历史，每批独立提交
+            updateProgress(appId, AppCleanupStatusEnum.RUNNING, "删除对话历史", deletedHistoryCount, null);
+            int batchCount;
+            do {
+                batchCount = chatHistoryService.deleteBatchByAppId(appId, HISTORY_DELETE_BATCH_SIZE);
+                deletedHistoryCount += batchCount;
+                updateProgress(appId, AppCleanupStatusEnum.RUNNING, "删除对话历史", deletedHistoryCount, null);
+            } while (batchCount == HISTORY_DELETE_BATCH_SIZE);
+            chatHistoryArchiveManager.deleteArchive(appId);
+            // 2. 删除生成目录和部署目录
+            updateProgress(appId, AppCleanupStatusEnum.RUNNING, "删除代码文件", deletedHistoryCount, null);
+            String sourceDirName = app.getCodeGenType() + "_" + appId;
+            FileUtil.del(new File(AppConstant.CODE_OUTPUT_ROOT_DIR, sourceDirName));
+            if (StrUtil.isNotBlank(app.getDeployKey())) {
+                FileUtil.del(new File(AppConstant.CODE_DEPLOY_ROOT_DIR, app.getDeployKey()));
+            }
+            // 3. 清理 Redis 对话记忆和本地缓存
+            updateProgress(appId, AppCleanupStatusEnum.RUNNING, "清理对话记忆", deletedHistoryCount, null);
+            redisChatMemoryStore.deleteMessages(appId);
+            chatMemoryHydrator.markStale(appId);
+            markCleaned(appId);
+            updateProgress(appId, AppCleanupStatusEnum.SUCCEED, "清理完成", deletedHistoryCount, null);
+            log.info("应用 {} 的关联数据清理完成，删除对话历史 {} 条", appId, deletedHistoryCount);
+        } catch (Exception e) {
+            log.error("应用 {} 的关联数据清理失败", appId, e);
+            updateProgress(appId, AppCleanupStatusEnum.FAILED, "清理失败", deletedHistoryCount, e.getMessage());
+        }
+    }
+
+    /**
+     * 在已删除的应用记录上写入清理完成时间，之后不再重试
+     */
+    private void markCleaned(Long appId) {
+        App updateApp = new App();
+        updateApp.setId(appId);
+        updateApp.setCleanedTime(LocalDateTime.now());
+        LogicDeleteManager.execWithoutLogicDelete(() -> appMapper.update(updateApp));
+    }
+
+    private void updateProgress(Long appId, AppCleanupStatusEnum status, String step,
+                                long deletedHistoryCount, String errorMessage) {
+        try {
+            String key = PROGRESS_KEY_PREFIX + appId;
+            Map<String, String> entries = new HashMap<>();
+            entries.put("status", status.getValue());
+            entries.put("step", step);
+            entries.put("deletedHistoryCount", String.valueOf(deletedHistoryCount));
+            entries.put("updateTime", String.valueOf(System.currentTimeMillis()));
+            if (errorMessage != null) {
+                entries.put("errorMessage", errorMessage);
+            }
+            stringRedisTemplate.opsForHash().putAll(key, entries);
+            stringRedisTemplate.expire(key, PROGRESS_TTL);
+        } catch (Exception e) {
+            // 进度只用于展示，记录失败不影响清理
+            log.warn("记录应用 {} 的清理进度失败", appId, e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cleanupExecutor.shutdown();
+    }
+}
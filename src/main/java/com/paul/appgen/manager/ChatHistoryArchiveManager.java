@@ -0,0 +1,204 @@
+package com.paul.appgen.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paul.appgen.constant.AppConstant;
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.model.entity.ChatHistory;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 对话历史归档存储
+ * 冷会话按应用归档为 gzip 压缩的 JSON Lines 文件：{归档目录}/{appId}.jsonl.gz，
+ * 归档记录数单独写入 {归档目录}/{appId}.count，统计总数时不需要解压归档
+ */
+@Slf4j
+@Component
+public class ChatHistoryArchiveManager {
+
+    private static final String ARCHIVE_FILE_SUFFIX = ".jsonl.gz";
+
+    private static final String COUNT_FILE_SUFFIX = ".count";
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * 是否存在归档
+     *
+     * @param appId 应用ID
+     * @return 是否存在
+     */
+    public boolean hasArchive(long appId) {
+        return Files.exists(getArchivePath(appId));
+    }
+
+    /**
+     * 归档记录数，读取记录数文件；旧归档没有记录数文件时统计一次并补写
+     *
+     * @param appId 应用ID
+     * @return 归档记录数，不存在归档时返回 0
+     */
+    public long getArchivedCount(long appId) {
+        Path countPath = getCountPath(appId);
+        if (Files.exists(countPath)) {
+            try {
+                return Long.parseLong(Files.readString(countPath, StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException e) {
+                log.warn("读取归档记录数失败，重新统计，appId:{}", appId, e);
+            }
+        }
+        if (!hasArchive(appId)) {
+            return 0;
+        }
+        long count = readArchive(appId).size();
+        writeCount(appId, count);
+        return count;
+    }
+
+    /**
+     * 读取应用的全部归档记录，按创建时间升序
+     *
+     * @param appId 应用ID
+     * @return 归档记录，不存在时返回空列表
+     */
+    public List<ChatHistory> readArchive(long appId) {
+        Path archivePath = getArchivePath(appId);
+        if (!Files.exists(archivePath)) {
+            return new ArrayList<>();
+        }
+        List<ChatHistory> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archivePath)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records.add(objectMapper.readValue(line, ChatHistory.class));
+                }
+            }
+        } catch (IOException e) {
+            log.error("读取对话历史归档失败，appId:{}", appId, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取对话历史归档失败");
+        }
+        return records;
+    }
+
+    /**
+     * 读取早于指定时间的归档记录，按创建时间降序
+     *
+     * @param appId  应用ID
+     * @param before 时间上界（不包含），为空表示不限制
+     * @param limit  最大条数
+     * @return 归档记录
+     */
+    public List<ChatHistory> readArchiveBefore(long appId, LocalDateTime before, int limit) {
+        return readArchive(appId).stream()
+                .filter(record -> before == null || record.getCreateTime().isBefore(before))
+                .sorted(Comparator.comparing(ChatHistory::getCreateTime).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * 把记录合并进应用的归档文件
+     * 先写临时文件再原子替换，按 id 去重，保证重复归档不会产生重复记录
+     *
+     * @param appId   应用ID
+     * @param records 待归档记录
+     */
+    public void appendToArchive(long appId, List<ChatHistory> records) {
+        if (CollUtil.isEmpty(records)) {
+            return;
+        }
+        Map<Long, ChatHistory> merged = new LinkedHashMap<>();
+        for (ChatHistory record : readArchive(appId)) {
+            merged.put(record.getId(), record);
+        }
+        for (ChatHistory record : records) {
+            merged.put(record.getId(), record);
+        }
+        List<ChatHistory> sortedRecords = merged.values().stream()
+                .sorted(Comparator.comparing(ChatHistory::getCreateTime))
+                .toList();
+        Path archivePath = getArchivePath(appId);
+        Path tempPath = archivePath.resolveSibling(archivePath.getFileName() + ".tmp");
+        FileUtil.mkdir(archivePath.getParent().toFile());
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tempPath)), StandardCharsets.UTF_8))) {
+            for (ChatHistory record : sortedRecords) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            FileUtil.del(tempPath);
+            log.error("写入对话历史归档失败，appId:{}", appId, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "写入对话历史归档失败");
+        }
+        try {
+            Files.move(tempPath, archivePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            FileUtil.del(tempPath);
+            log.error("替换对话历史归档失败，appId:{}", appId, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "写入对话历史归档失败");
+        }
+        writeCount(appId, sortedRecords.size());
+        log.info("appId:{} 归档 {} 条对话历史，归档总数 {}", appId, records.size(), sortedRecords.size());
+    }
+
+    /**
+     * 删除应用的归档
+     *
+     * @param appId 应用ID
+     */
+    public void deleteArchive(long appId) {
+        FileUtil.del(getArchivePath(appId));
+        FileUtil.del(getCountPath(appId));
+    }
+
+    /**
+     * 记录数只用于分页总数，写入失败时下次读取会重新统计
+     */
+    private void writeCount(long appId, long count) {
+        Path countPath = getCountPath(appId);
+        Path tempPath = countPath.resolveSibling(countPath.getFileName() + ".tmp");
+        try {
+            Files.writeString(tempPath, String.valueOf(count), StandardCharsets.UTF_8);
+            Files.move(tempPath, countPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            FileUtil.del(tempPath);
+            FileUtil.del(countPath);
+            log.warn("写入归档记录数失败，appId:{}", appId, e);
+        }
+    }
+
+    private Path getArchivePath(long appId) {
+        return Paths.get(AppConstant.CHAT_HISTORY_ARCHIVE_DIR, appId + ARCHIVE_FILE_SUFFIX);
+    }
+
+    private Path getCountPath(long appId) {
+        return Paths.get(AppConstant.CHAT_HISTORY_ARCHIVE_DIR, appId + COUNT_FILE_SUFFIX);
+    }
+}
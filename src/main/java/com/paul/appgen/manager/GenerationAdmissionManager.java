@@ -0,0 +1,227 @@
+package com.paul.appgen.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paul.appgen.config.GenerationAdmissionConfig;
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.exception.ThrowUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * 代码生成准入控制
+ * 1. 用户级令牌桶限流（Redisson，多实例共享），超过直接拒绝
+ * 2. 全局和用户级并发上限，达到上限时进入公平队列排队，并推送排队位置
+ * 3. 队列已满或排队超时时快速失败，而不是让请求堆积到上游超时
+ */
+@Slf4j
+@Component
+public class GenerationAdmissionManager {
+
+    private static final String RATE_LIMITER_KEY_PREFIX = "gen:rate:user:";
+
+    @Resource
+    private GenerationAdmissionConfig admissionConfig;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 限流器在 Redis 中的保活时间：每次获取令牌都会续期，空闲超过该时间后自动删除
+     */
+    private static final int RATE_LIMITER_KEEP_ALIVE_PERIODS = 10;
+
+    /**
+     * 已初始化过的限流器，避免每次都设置速率
+     * 本地缓存的空闲过期时间必须短于 Redis 保活时间，否则会拿到 Redis 中已删除的限流器
+     */
+    private Cache<Long, RRateLimiter> rateLimiterCache;
+
+    /**
+     * 以下状态都由 this 锁保护
+     */
+    private int activeCount = 0;
+
+    private final Map<Long, Integer> userActiveCount = new HashMap<>();
+
+    private final LinkedList<Waiter> waitQueue = new LinkedList<>();
+
+    @PostConstruct
+    public void init() {
+        rateLimiterCache = Caffeine.newBuilder()
+                .maximumSize(10000)
+                .expireAfterAccess(getRateLimiterKeepAlive().dividedBy(2))
+                .build();
+    }
+
+    /**
+     * 申请执行生成任务
+     *
+     * @param userId          用户ID
+     * @param task            生成任务，准入后才会订阅
+     * @param queueEventMapper 排队位置（从 1 开始）到事件的转换
+     * @param <T>             事件类型
+     * @return 排队事件 + 生成任务事件
+     */
+    public <T> Flux<T> admit(long userId, Supplier<Flux<T>> task, IntFunction<T> queueEventMapper) {
+        checkRateLimit(userId);
+        Waiter waiter = new Waiter(userId);
+        synchronized (this) {
+            if (waitQueue.isEmpty() && hasCapacity(userId)) {
+                acquire(waiter);
+            } else {
+                ThrowUtils.throwIf(waitQueue.size() >= admissionConfig.getMaxQueueSize(),
+                        ErrorCode.TOO_MANY_REQUEST, "当前生成任务过多，请稍后再试");
+                waitQueue.addLast(waiter);
+                waiter.emitPosition(waitQueue.size());
+            }
+        }
+        Flux<T> queueEvents = waiter.positions.asFlux()
+                .doOnSubscribe(subscription -> scheduleTimeout(waiter))
+                .map(queueEventMapper::apply);
+        return Flux.concat(queueEvents, Flux.defer(task))
+                .doFinally(signalType -> finish(waiter));
+    }
+
+    /**
+     * 用户级令牌桶限流
+     */
+    private void checkRateLimit(long userId) {
+        RRateLimiter rateLimiter = rateLimiterCache.get(userId, id -> {
+            RRateLimiter limiter = redissonClient.getRateLimiter(RATE_LIMITER_KEY_PREFIX + id);
+            limiter.trySetRate(RateType.OVERALL, admissionConfig.getUserRate(), admissionConfig.getRatePeriod(),
+                    getRateLimiterKeepAlive());
+            return limiter;
+        });
+        ThrowUtils.throwIf(!rateLimiter.tryAcquire(), ErrorCode.TOO_MANY_REQUEST, "生成请求过于频繁，请稍后再试");
+    }
+
+    private Duration getRateLimiterKeepAlive() {
+        return admissionConfig.getRatePeriod().multipliedBy(RATE_LIMITER_KEEP_ALIVE_PERIODS);
+    }
+
+    private boolean hasCapacity(long userId) {
+        return activeCount < admissionConfig.getMaxConcurrent()
+                && userActiveCount.getOrDefault(userId, 0) < admissionConfig.getMaxConcurrentPerUser();
+    }
+
+    private void acquire(Waiter waiter) {
+        activeCount++;
+        userActiveCount.merge(waiter.userId, 1, Integer::sum);
+        waiter.admitted = true;
+        waiter.positions.tryEmitComplete();
+        if (waiter.timeoutTask != null) {
+            waiter.timeoutTask.dispose();
+        }
+    }
+
+    /**
+     * 任务结束（完成、失败或取消）后释放名额，排队中被取消则移出队列
+     */
+    private void finish(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.finished) {
+                return;
+            }
+            waiter.finished = true;
+            if (waiter.admitted) {
+                activeCount--;
+                userActiveCount.computeIfPresent(waiter.userId, (id, count) -> count > 1 ? count - 1 : null);
+            } else {
+                waitQueue.remove(waiter);
+            }
+            drainQueue();
+        }
+    }
+
+    /**
+     * 按排队顺序放行有名额的任务，跳过已达到用户并发上限的任务，避免单个用户阻塞整个队列
+     */
+    private void drainQueue() {
+        Iterator<Waiter> iterator = waitQueue.iterator();
+        while (iterator.hasNext() && activeCount < admissionConfig.getMaxConcurrent()) {
+            Waiter waiter = iterator.next();
+            if (hasCapacity(waiter.userId)) {
+                iterator.remove();
+                acquire(waiter);
+            }
+        }
+        List<Waiter> remaining = new ArrayList<>(waitQueue);
+        for (int i = 0; i < remaining.size(); i++) {
+            remaining.get(i).emitPosition(i + 1);
+        }
+    }
+
+    private void scheduleTimeout(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.admitted || waiter.finished) {
+                return;
+            }
+            waiter.timeoutTask = Mono.delay(admissionConfig.getQueueTimeout())
+                    .subscribe(tick -> expire(waiter));
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.admitted || waiter.finished || !waitQueue.remove(waiter)) {
+                return;
+            }
+            drainQueue();
+        }
+        log.warn("用户 {} 的生成任务排队超时", waiter.userId);
+        waiter.positions.tryEmitError(new BusinessException(ErrorCode.TOO_MANY_REQUEST, "排队超时，请稍后再试"));
+    }
+
+    /**
+     * 排队中的任务
+     */
+    private static class Waiter {
+
+        private final long userId;
+
+        /**
+         * 排队位置，准入后完成
+         */
+        private final Sinks.Many<Integer> positions = Sinks.many().replay().latest();
+
+        private int lastPosition = -1;
+
+        private boolean admitted = false;
+
+        private boolean finished = false;
+
+        private Disposable timeoutTask;
+
+        private Waiter(long userId) {
+            this.userId = userId;
+        }
+
+        private void emitPosition(int position) {
+            if (position != lastPosition) {
+                lastPosition = position;
+                positions.tryEmitNext(position);
+            }
+        }
+    }
+}
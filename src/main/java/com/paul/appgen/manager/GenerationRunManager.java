@@ -0,0 +1,428 @@
+package com.paul.appgen.manager;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.exception.ThrowUtils;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 生成任务管理
+ * 生成任务与 HTTP 连接解耦，连接断开不会中断生成，重连不会重复消耗 token：
+ * 1. 同一应用同一时间只允许一个生成任务（single-flight），本实例已有相同消息的任务时接入该任务，
+ * 消息不同或其他实例正在生成时快速拒绝，避免多个任务同时写同一个输出目录、重复构建
+ * 2. 每个任务有唯一的 runId，事件按序号编号，最近的事件保存在内存环形缓冲区，全部事件异步写入 Redis Stream
+ * 3. 客户端通过 Last-Event-ID（runId:序号）断点续传：内存中已淘汰的事件从 Redis Stream 补齐，
+ * 其他实例上的任务轮询 Redis Stream
+ * 4. 新任务经过准入控制，准入名额在任务结束时释放，排队位置作为 queue 事件推送
+ */
+@Slf4j
+@Component
+public class GenerationRunManager {
+
+    private static final String LOCK_KEY_PREFIX = "gen:app:lock:";
+
+    private static final String EVENT_STREAM_KEY_PREFIX = "gen:run:events:";
+
+    /**
+     * 分布式锁租期，生成期间定时续期，实例宕机后锁自动过期
+     */
+    private static final Duration LOCK_LEASE = Duration.ofMinutes(2);
+
+    private static final Duration LOCK_RENEW_INTERVAL = Duration.ofSeconds(30);
+
+    /**
+     * 内存中保留的最近事件数
+     */
+    private static final int RING_BUFFER_SIZE = 512;
+
+    /**
+     * 事件写入 Redis 的批大小和最长等待时间
+     */
+    private static final int PERSIST_BATCH_SIZE = 64;
+
+    private static final Duration PERSIST_BATCH_TIMEOUT = Duration.ofMillis(200);
+
+    /**
+     * 续传时等待缺失事件写入 Redis 的最长时间
+     */
+    private static final Duration PERSIST_WAIT_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * Redis Stream 和本地任务记录的保留时间，超过后无法续传
+     */
+    private static final Duration RUN_RETENTION = Duration.ofMinutes(30);
+
+    private static final Duration REMOTE_POLL_INTERVAL = Duration.ofMillis(500);
+
+    /**
+     * 轮询其他实例的任务时，超过该时间没有新事件视为任务已中断
+     */
+    private static final Duration REMOTE_IDLE_TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * 错误事件类型，与全局异常处理器写出的事件一致
+     */
+    public static final String EVENT_TYPE_ERROR = "business-error";
+
+    /**
+     * 结束标记，只用于记录任务已结束，不发送给客户端
+     */
+    private static final String EVENT_TYPE_END = "end";
+
+    /**
+     * 排队事件类型
+     */
+    public static final String EVENT_TYPE_QUEUE = "queue";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private GenerationAdmissionManager generationAdmissionManager;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 应用ID -> 本实例正在进行的生成任务
+     */
+    private final ConcurrentMap<Long, GenerationRun> runningMap = new ConcurrentHashMap<>();
+
+    /**
+     * runId -> 本实例最近的生成任务（包括已结束的），用于续传
+     */
+    private final Cache<String, GenerationRun> recentRuns = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(RUN_RETENTION)
+            .build();
+
+    /**
+     * 执行生成任务，同一应用已有任务时接入或拒绝
+     *
+     * @param appId      应用ID
+     * @param userId     用户ID，用于准入控制
+     * @param message    用户消息
+     * @param generation 生成任务，只在真正启动新任务并准入后调用
+     * @return 生成事件流，取消订阅不会中断生成
+     */
+    public Flux<GenerationEvent> run(long appId, long userId, String message, Supplier<Flux<String>> generation) {
+        String messageKey = StrUtil.trim(message);
+        while (true) {
+            GenerationRun current = runningMap.get(appId);
+            if (current != null) {
+                if (current.messageKey.equals(messageKey)) {
+                    log.info("应用 {} 已有相同消息的生成任务 {}，接入正在进行的流", appId, current.runId);
+                    return current.events(0);
+                }
+                throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "该应用正在生成中，请等待当前生成完成");
+            }
+            GenerationRun run = start(appId, userId, messageKey, generation);
+            if (run != null) {
+                return run.events(0);
+            }
+            // 本实例并发启动时另一个请求抢先登记，重新检查是否可以接入
+        }
+    }
+
+    /**
+     * 从断点续传
+     *
+     * @param appId       应用ID
+     * @param lastEventId 客户端最后收到的事件ID（runId:序号）
+     * @return 序号之后的生成事件流
+     */
+    public Flux<GenerationEvent> resume(long appId, String lastEventId) {
+        List<String> parts = StrUtil.split(lastEventId, ':');
+        ThrowUtils.throwIf(parts.size() != 2 || !NumberUtil.isLong(parts.get(1)), ErrorCode.PARAMS_ERROR, "Last-Event-ID 格式错误");
+        String runId = parts.get(0);
+        long afterSeq = Long.parseLong(parts.get(1));
+        GenerationRun run = recentRuns.getIfPresent(runId);
+        if (run != null && run.appId == appId) {
+            return run.events(afterSeq);
+        }
+        String streamKey = getStreamKey(appId, runId);
+        ThrowUtils.throwIf(!Boolean.TRUE.equals(stringRedisTemplate.hasKey(streamKey)),
+                ErrorCode.NOT_FOUND_ERROR, "生成记录不存在或已过期");
+        return pollStream(streamKey, runId, afterSeq);
+    }
+
+    /**
+     * 抢占分布式锁并启动生成任务，生成在后台订阅，与客户端连接无关
+     * 准入名额随后台订阅释放，客户端断开时模型仍在生成，名额不会提前归还
+     *
+     * @return 新任务，本实例其他请求抢先登记时返回 null
+     */
+    private GenerationRun start(long appId, long userId, String messageKey, Supplier<Flux<String>> generation) {
+        String owner = IdUtil.fastSimpleUUID();
+        RBucket<String> lock = getLock(appId);
+        if (!lock.setIfAbsent(owner, LOCK_LEASE)) {
+            if (runningMap.containsKey(appId)) {
+                return null;
+            }
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "该应用正在生成中，请等待当前生成完成");
+        }
+        GenerationRun run = new GenerationRun(appId, IdUtil.fastSimpleUUID(), messageKey);
+        if (runningMap.putIfAbsent(appId, run) != null) {
+            releaseLock(lock, owner, appId);
+            return null;
+        }
+        Flux<GenerationEvent> admittedEvents;
+        try {
+            // 限流或队列已满时直接拒绝
+            admittedEvents = generationAdmissionManager.admit(userId,
+                    () -> Flux.defer(generation).map(chunk -> run.next(null, chunk)),
+                    position -> run.next(EVENT_TYPE_QUEUE, JSONUtil.toJsonStr(Map.of("position", position))));
+        } catch (RuntimeException e) {
+            runningMap.remove(appId, run);
+            releaseLock(lock, owner, appId);
+            throw e;
+        }
+        recentRuns.put(run.runId, run);
+        Disposable renewTask = Flux.interval(LOCK_RENEW_INTERVAL, LOCK_RENEW_INTERVAL)
+                .subscribe(tick -> lock.expire(LOCK_LEASE),
+                        error -> log.error("续期应用 {} 的生成锁失败", appId, error));
+        // 事件分批写入 Redis Stream
+        run.sink.asFlux()
+                .bufferTimeout(PERSIST_BATCH_SIZE, PERSIST_BATCH_TIMEOUT)
+                .concatMap(batch -> Mono.fromRunnable(() -> persist(run, batch)).subscribeOn(Schedulers.boundedElastic()))
+                .subscribe();
+        admittedEvents
+                // 生成失败（包括排队超时）也作为事件记录，续传的客户端同样能收到
+                .onErrorResume(e -> {
+                    log.error("应用 {} 的生成任务 {} 失败", appId, run.runId, e);
+                    return Mono.just(run.next(EVENT_TYPE_ERROR, toErrorData(e)));
+                })
+                .concatWith(Mono.fromSupplier(() -> run.next(EVENT_TYPE_END, "")))
+                .doFinally(signalType -> {
+                    renewTask.dispose();
+                    runningMap.remove(appId, run);
+                    releaseLock(lock, owner, appId);
+                })
+                .subscribe(run::emit, error -> run.sink.tryEmitError(error), run.sink::tryEmitComplete);
+        return run;
+    }
+
+    private void persist(GenerationRun run, List<GenerationEvent> batch) {
+        String streamKey = getStreamKey(run.appId, run.runId);
+        try {
+            // 一批事件在一次往返中写入
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (GenerationEvent event : batch) {
+                    stringConnection.xAdd(StreamRecords.string(Map.of("t", StrUtil.nullToEmpty(event.type()), "d", event.data()))
+                            .withStreamKey(streamKey)
+                            .withId(RecordId.of(event.seq(), 0)));
+                }
+                stringConnection.expire(streamKey, RUN_RETENTION.toSeconds());
+                return null;
+            });
+            run.persistedSeq.set(batch.getLast().seq());
+        } catch (Exception e) {
+            // 写入失败只影响跨实例和长时间断线后的续传
+            log.error("生成事件写入 Redis 失败，runId={}", run.runId, e);
+        }
+    }
+
+    /**
+     * 从 Redis Stream 读取序号之后的事件
+     */
+    private List<GenerationEvent> readStream(String streamKey, String runId, long afterSeq) {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                .range(streamKey, Range.rightUnbounded(Range.Bound.inclusive(RecordId.of(afterSeq + 1, 0).getValue())));
+        List<GenerationEvent> events = new ArrayList<>();
+        if (records == null) {
+            return events;
+        }
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> fields = record.getValue();
+            events.add(new GenerationEvent(runId, record.getId().getTimestamp(),
+                    StrUtil.emptyToNull((String) fields.get("t")), (String) fields.get("d")));
+        }
+        return events;
+    }
+
+    /**
+     * 轮询 Redis Stream，用于续传其他实例上的任务
+     */
+    private Flux<GenerationEvent> pollStream(String streamKey, String runId, long afterSeq) {
+        return Flux.defer(() -> {
+            long[] lastSeq = {afterSeq};
+            long[] lastActiveTime = {System.currentTimeMillis()};
+            return Flux.interval(Duration.ZERO, REMOTE_POLL_INTERVAL)
+                    .onBackpressureDrop()
+                    .publishOn(Schedulers.boundedElastic(), 1)
+                    .concatMapIterable(tick -> {
+                        List<GenerationEvent> events = readStream(streamKey, runId, lastSeq[0]);
+                        if (!events.isEmpty()) {
+                            lastSeq[0] = events.getLast().seq();
+                            lastActiveTime[0] = System.currentTimeMillis();
+                        } else if (System.currentTimeMillis() - lastActiveTime[0] > REMOTE_IDLE_TIMEOUT.toMillis()) {
+                            throw new BusinessException(ErrorCode.OPERATION_ERROR, "生成任务已中断，请重新发送");
+                        }
+                        return events;
+                    })
+                    .takeWhile(event -> !EVENT_TYPE_END.equals(event.type()));
+        });
+    }
+
+    private String toErrorData(Throwable e) {
+        int code = ErrorCode.SYSTEM_ERROR.getCode();
+        String message = "AI 生成失败，请重试";
+        if (e instanceof BusinessException businessException) {
+            code = businessException.getCode();
+            message = businessException.getMessage();
+        }
+        return JSONUtil.toJsonStr(Map.of("error", true, "code", code, "message", message));
+    }
+
+    private void releaseLock(RBucket<String> lock, String owner, long appId) {
+        try {
+            // 只释放自己持有的锁
+            lock.compareAndSet(owner, null);
+        } catch (Exception e) {
+            log.error("释放应用 {} 的生成锁失败，等待租期过期", appId, e);
+        }
+    }
+
+    private RBucket<String> getLock(long appId) {
+        return redissonClient.getBucket(LOCK_KEY_PREFIX + appId, StringCodec.INSTANCE);
+    }
+
+    private String getStreamKey(long appId, String runId) {
+        return EVENT_STREAM_KEY_PREFIX + appId + ":" + runId;
+    }
+
+    /**
+     * 生成任务
+     */
+    private class GenerationRun {
+
+        private final long appId;
+
+        private final String runId;
+
+        private final String messageKey;
+
+        /**
+         * 最近的事件，后订阅者先收到缓冲区中的事件再接收实时事件
+         */
+        private final Sinks.Many<GenerationEvent> sink = Sinks.many().replay().limit(RING_BUFFER_SIZE);
+
+        /**
+         * 已分配的最大序号，只在生成流中递增
+         */
+        private final AtomicLong lastSeq = new AtomicLong();
+
+        /**
+         * 已写入 Redis Stream 的最大序号，按批次顺序递增
+         */
+        private final AtomicLong persistedSeq = new AtomicLong();
+
+        private GenerationRun(long appId, String runId, String messageKey) {
+            this.appId = appId;
+            this.runId = runId;
+            this.messageKey = messageKey;
+        }
+
+        private GenerationEvent next(String type, String data) {
+            return new GenerationEvent(runId, lastSeq.incrementAndGet(), type, data);
+        }
+
+        private void emit(GenerationEvent event) {
+            Sinks.EmitResult result = sink.tryEmitNext(event);
+            if (result.isFailure()) {
+                log.warn("生成事件发送失败，runId={}，seq={}，原因 {}", runId, event.seq(), result);
+            }
+        }
+
+        /**
+         * 订阅序号之后的事件
+         * 先订阅内存缓冲区（订阅后的事件不会再丢失），第一条缓冲事件之前缺失的部分等写入 Redis 后从 Stream 补齐，
+         * 补齐后仍不连续时返回错误，而不是跳过缺失的事件
+         */
+        private Flux<GenerationEvent> events(long afterSeq) {
+            return sink.asFlux()
+                    .switchOnFirst((first, buffered) -> {
+                        if (!first.hasValue() || first.get().seq() <= afterSeq + 1) {
+                            return buffered;
+                        }
+                        long firstBufferedSeq = first.get().seq();
+                        return readMissingEvents(afterSeq, firstBufferedSeq).concatWith(buffered);
+                    })
+                    .filter(event -> event.seq() > afterSeq)
+                    .takeWhile(event -> !EVENT_TYPE_END.equals(event.type()));
+        }
+
+        /**
+         * 从 Redis Stream 读取 (afterSeq, beforeSeq) 之间的事件
+         */
+        private Flux<GenerationEvent> readMissingEvents(long afterSeq, long beforeSeq) {
+            return Flux.interval(Duration.ZERO, PERSIST_BATCH_TIMEOUT)
+                    .filter(tick -> persistedSeq.get() >= beforeSeq - 1)
+                    .next()
+                    .timeout(PERSIST_WAIT_TIMEOUT, Mono.error(() -> new BusinessException(ErrorCode.OPERATION_ERROR, "续传失败，请重新发送")))
+                    .publishOn(Schedulers.boundedElastic())
+                    .flatMapMany(tick -> {
+                        List<GenerationEvent> missing = readStream(getStreamKey(appId, runId), runId, afterSeq).stream()
+                                .filter(event -> event.seq() < beforeSeq)
+                                .toList();
+                        // 序号唯一且在区间内，数量一致即连续
+                        if (missing.size() != beforeSeq - afterSeq - 1) {
+                            log.warn("续传事件不连续，runId={}，需要 {} 条，读取到 {} 条", runId, beforeSeq - afterSeq - 1, missing.size());
+                            return Flux.error(new BusinessException(ErrorCode.OPERATION_ERROR, "续传失败，请重新发送"));
+                        }
+                        return Flux.fromIterable(missing);
+                    });
+        }
+    }
+
+    /**
+     * 生成事件
+     *
+     * @param runId 生成任务ID
+     * @param seq   序号，从 1 开始
+     * @param type  事件类型，普通内容为 null
+     * @param data  事件内容
+     */
+    public record GenerationEvent(String runId, long seq, String type, String data) {
+
+        /**
+         * SSE 事件ID，客户端重连时通过 Last-Event-ID 带回
+         */
+        public String id() {
+            return runId + ":" + seq;
+        }
+    }
+}
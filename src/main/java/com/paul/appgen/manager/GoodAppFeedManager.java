@@ -0,0 +1,294 @@
+package com.paul.appgen.manager;
+
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.paul.appgen.common.ResultUtils;
+import com.paul.appgen.constant.AppConstant;
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.model.entity.App;
+import com.paul.appgen.model.vo.AppVO;
+import com.paul.appgen.service.AppService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 精选应用列表
+ * 精选应用数量少、读多写少，在内存中维护一份物化快照，并同步到 Redis 供其他实例加载：
+ * 1. 按应用名称建立二元组倒排索引，名称过滤不再走 LIKE
+ * 2. 分页结果直接缓存序列化后的 JSON 响应
+ * 3. 精选应用本身（名称、封面、部署信息、精选状态）或其作者信息变化时重建快照并递增版本号，
+ * 其他实例定时比对版本号后从 Redis 加载；快照超过最长有效期时兜底重建
+ */
+@Slf4j
+@Component
+public class GoodAppFeedManager {
+
+    private static final String FEED_KEY = "app:good:feed";
+
+    private static final String FEED_VERSION_KEY = "app:good:feed:version";
+
+    /**
+     * 快照从数据库重建的时间（毫秒时间戳）
+     */
+    private static final String FEED_BUILT_AT_KEY = "app:good:feed:builtAt";
+
+    /**
+     * 快照最长有效期，覆盖没有主动重建的写入路径
+     */
+    private static final Duration FEED_MAX_AGE = Duration.ofMinutes(10);
+
+    @Resource
+    @Lazy
+    private AppService appService;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * 当前快照，整体替换
+     */
+    private volatile FeedSnapshot snapshot;
+
+    /**
+     * 序列化后的分页响应，key 包含快照版本号，快照更新时整体失效
+     */
+    private final Cache<String, String> pageResponseCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .build();
+
+    /**
+     * 启动完成后加载快照，优先从 Redis 加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            syncFromRedis();
+        } catch (Exception e) {
+            log.error("加载精选应用快照失败，首次请求时重试", e);
+        }
+    }
+
+    /**
+     * 获取精选应用分页响应（已序列化的 JSON）
+     *
+     * @param appName  应用名称关键字，可为空
+     * @param pageNum  页号
+     * @param pageSize 页面大小
+     * @return BaseResponse<Page<AppVO>> 的 JSON
+     */
+    public String getPageResponseJson(String appName, long pageNum, long pageSize) {
+        FeedSnapshot currentSnapshot = getSnapshot();
+        String keyword = normalize(appName);
+        String cacheKey = currentSnapshot.version() + ":" + pageNum + ":" + pageSize + ":" + keyword;
+        return pageResponseCache.get(cacheKey, key -> buildPageResponseJson(currentSnapshot, keyword, pageNum, pageSize));
+    }
+
+    /**
+     * 应用是否在当前快照中
+     *
+     * @param appId 应用ID
+     * @return 是否是精选应用
+     */
+    public boolean containsApp(long appId) {
+        FeedSnapshot currentSnapshot = snapshot;
+        return currentSnapshot != null && currentSnapshot.apps().stream().anyMatch(app -> Long.valueOf(appId).equals(app.getId()));
+    }
+
+    /**
+     * 用户信息变化后，该用户有精选应用时重建快照（快照中包含作者信息）
+     *
+     * @param userId 用户ID
+     */
+    public void refreshIfOwnedBy(long userId) {
+        FeedSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null && currentSnapshot.apps().stream()
+                .anyMatch(app -> Long.valueOf(userId).equals(app.getUserId()))) {
+            refresh();
+        }
+    }
+
+    /**
+     * 从数据库重建快照并发布到 Redis
+     */
+    public synchronized void refresh() {
+        List<App> goodApps = appService.list(QueryWrapper.create()
+                .ge("priority", AppConstant.GOOD_APP_PRIORITY)
+                .orderBy("priority", false)
+                .orderBy("createTime", false));
+        List<AppVO> appVOList = appService.getAppVOList(goodApps);
+        long version = 0;
+        try {
+            stringRedisTemplate.opsForValue().set(FEED_KEY, objectMapper.writeValueAsString(appVOList));
+            stringRedisTemplate.opsForValue().set(FEED_BUILT_AT_KEY, String.valueOf(System.currentTimeMillis()));
+            Long newVersion = stringRedisTemplate.opsForValue().increment(FEED_VERSION_KEY);
+            version = newVersion == null ? 0 : newVersion;
+        } catch (Exception e) {
+            // Redis 不可用时只更新本地快照
+            log.error("发布精选应用快照到 Redis 失败", e);
+            version = snapshot == null ? 0 : snapshot.version() + 1;
+        }
+        applySnapshot(version, appVOList);
+        log.info("精选应用快照已重建，版本 {}，共 {} 个应用", version, appVOList.size());
+    }
+
+    /**
+     * 定时比对 Redis 中的版本号，其他实例重建过快照时从 Redis 加载，不查数据库；快照过期时从数据库重建
+     */
+    @Scheduled(fixedDelay = 5000, initialDelay = 5000)
+    public void syncFromRedis() {
+        String versionValue = stringRedisTemplate.opsForValue().get(FEED_VERSION_KEY);
+        String feedJson = stringRedisTemplate.opsForValue().get(FEED_KEY);
+        if (versionValue == null || feedJson == null || isExpired(stringRedisTemplate.opsForValue().get(FEED_BUILT_AT_KEY))) {
+            refresh();
+            return;
+        }
+        long version = Long.parseLong(versionValue);
+        FeedSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null && currentSnapshot.version() >= version) {
+            return;
+        }
+        try {
+            List<AppVO> appVOList = objectMapper.readValue(feedJson, new TypeReference<List<AppVO>>() {
+            });
+            applySnapshot(version, appVOList);
+            log.info("从 Redis 加载精选应用快照，版本 {}，共 {} 个应用", version, appVOList.size());
+        } catch (JsonProcessingException e) {
+            log.error("解析 Redis 中的精选应用快照失败，从数据库重建", e);
+            refresh();
+        }
+    }
+
+    private boolean isExpired(String builtAtValue) {
+        return builtAtValue == null
+                || System.currentTimeMillis() - Long.parseLong(builtAtValue) > FEED_MAX_AGE.toMillis();
+    }
+
+    private FeedSnapshot getSnapshot() {
+        FeedSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                refresh();
+            }
+            return snapshot;
+        }
+    }
+
+    private void applySnapshot(long version, List<AppVO> appVOList) {
+        snapshot = new FeedSnapshot(version, List.copyOf(appVOList), buildNameIndex(appVOList));
+        pageResponseCache.invalidateAll();
+    }
+
+    private String buildPageResponseJson(FeedSnapshot currentSnapshot, String keyword, long pageNum, long pageSize) {
+        List<AppVO> matchedApps = search(currentSnapshot, keyword);
+        int fromIndex = (int) Math.min((pageNum - 1) * pageSize, matchedApps.size());
+        int toIndex = (int) Math.min(fromIndex + pageSize, matchedApps.size());
+        Page<AppVO> appVOPage = new Page<>(pageNum, pageSize, matchedApps.size());
+        appVOPage.setRecords(new ArrayList<>(matchedApps.subList(fromIndex, toIndex)));
+        try {
+            return objectMapper.writeValueAsString(ResultUtils.success(appVOPage));
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "序列化精选应用失败");
+        }
+    }
+
+    /**
+     * 按名称过滤：先用二元组倒排索引取候选，再逐个确认包含关键字
+     */
+    private List<AppVO> search(FeedSnapshot currentSnapshot, String keyword) {
+        List<AppVO> apps = currentSnapshot.apps();
+        if (keyword.isEmpty()) {
+            return apps;
+        }
+        List<AppVO> result = new ArrayList<>();
+        if (keyword.length() < 2) {
+            for (AppVO app : apps) {
+                if (normalize(app.getAppName()).contains(keyword)) {
+                    result.add(app);
+                }
+            }
+            return result;
+        }
+        Set<Integer> candidates = null;
+        for (String bigram : toBigrams(keyword)) {
+            List<Integer> postings = currentSnapshot.nameIndex().get(bigram);
+            if (postings == null) {
+                return result;
+            }
+            if (candidates == null) {
+                candidates = new LinkedHashSet<>(postings);
+            } else {
+                candidates.retainAll(postings);
+            }
+        }
+        for (Integer index : candidates) {
+            AppVO app = apps.get(index);
+            if (normalize(app.getAppName()).contains(keyword)) {
+                result.add(app);
+            }
+        }
+        return result;
+    }
+
+    private Map<String, List<Integer>> buildNameIndex(List<AppVO> appVOList) {
+        Map<String, List<Integer>> nameIndex = new HashMap<>();
+        for (int i = 0; i < appVOList.size(); i++) {
+            for (String bigram : toBigrams(normalize(appVOList.get(i).getAppName()))) {
+                List<Integer> postings = nameIndex.computeIfAbsent(bigram, key -> new ArrayList<>());
+                // 同一名称中重复的二元组只记录一次
+                if (postings.isEmpty() || postings.getLast() != i) {
+                    postings.add(i);
+                }
+            }
+        }
+        return nameIndex;
+    }
+
+    private Set<String> toBigrams(String text) {
+        Set<String> bigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            bigrams.add(text.substring(i, i + 2));
+        }
+        return bigrams;
+    }
+
+    private String normalize(String text) {
+        return StrUtil.trimToEmpty(text).toLowerCase();
+    }
+
+    /**
+     * 精选应用快照
+     *
+     * @param version   版本号
+     * @param apps      按优先级排序的精选应用
+     * @param nameIndex 名称二元组 -> 应用下标
+     */
+    private record FeedSnapshot(long version, List<AppVO> apps, Map<String, List<Integer>> nameIndex) {
+    }
+}
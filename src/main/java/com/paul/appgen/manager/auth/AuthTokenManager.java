@@ -0,0 +1,281 @@
+package com.paul.appgen.manager.auth;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paul.appgen.config.AuthTokenConfig;
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.model.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 登录令牌管理
+ * 令牌格式：Base64Url(userId:userRole:过期时间:令牌ID).Base64Url(HMAC-SHA256 签名)，校验只需本地计算签名；
+ * 登出的令牌写入按过期日期划分的 Redis 布隆过滤器，吊销状态在本地短时间缓存，正常请求不访问 Redis
+ */
+@Slf4j
+@Component
+public class AuthTokenManager {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * EventSource 无法设置请求头，SSE 接口通过该参数传递令牌
+     */
+    private static final String TOKEN_PARAM = "access_token";
+
+    private static final String REVOKED_FILTER_KEY_PREFIX = "auth:token:revoked:filter:";
+
+    /**
+     * 布隆过滤器命中后用精确记录排除误判
+     */
+    private static final String REVOKED_KEY_PREFIX = "auth:token:revoked:";
+
+    private static final long REVOKED_FILTER_EXPECTED_INSERTIONS = 100000;
+
+    private static final double REVOKED_FILTER_FALSE_PROBABILITY = 0.001;
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Resource
+    private AuthTokenConfig authTokenConfig;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 令牌ID -> 是否已吊销
+     */
+    private Cache<String, Boolean> revocationCache;
+
+    /**
+     * 过期日期 -> 布隆过滤器，复用同一个实例，查询时不再重复访问 Redis 初始化
+     */
+    private Cache<LocalDate, RBloomFilter<String>> revokedFilterCache;
+
+    /**
+     * 本实例已经确认初始化过的过滤器日期，吊销时只在第一次调用 tryInit
+     */
+    private final Set<LocalDate> initializedFilterDays = ConcurrentHashMap.newKeySet();
+
+    private SecretKeySpec secretKey;
+
+    @PostConstruct
+    public void init() {
+        revocationCache = Caffeine.newBuilder()
+                .maximumSize(100000)
+                .expireAfterWrite(authTokenConfig.getRevocationCacheTtl())
+                .build();
+        revokedFilterCache = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofDays(1))
+                .build();
+        if (!isEnabled()) {
+            return;
+        }
+        String secret = authTokenConfig.getSecret();
+        if (StrUtil.isBlank(secret) || secret.length() < 32) {
+            throw new IllegalStateException("开启令牌模式时 app.auth.token.secret 必须配置且不少于 32 个字符");
+        }
+        secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        log.info("登录令牌模式已开启，有效期 {}", authTokenConfig.getTtl());
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(authTokenConfig.getEnabled());
+    }
+
+    /**
+     * 签发令牌
+     *
+     * @param user 登录用户
+     * @return 令牌
+     */
+    public String issue(User user) {
+        long expiresAt = Instant.now().plus(authTokenConfig.getTtl()).getEpochSecond();
+        String payload = String.join(":", String.valueOf(user.getId()), user.getUserRole(),
+                String.valueOf(expiresAt), IdUtil.fastSimpleUUID());
+        String encodedPayload = base64Url(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + "." + base64Url(sign(encodedPayload));
+    }
+
+    /**
+     * 校验并解析令牌
+     *
+     * @param token 令牌
+     * @return 令牌信息，签名错误、过期或已吊销时返回 null
+     */
+    public AuthTokenClaims parse(String token) {
+        if (!isEnabled() || StrUtil.isBlank(token)) {
+            return null;
+        }
+        int separatorIndex = token.indexOf('.');
+        if (separatorIndex <= 0) {
+            return null;
+        }
+        String encodedPayload = token.substring(0, separatorIndex);
+        try {
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(separatorIndex + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                return null;
+            }
+            String[] parts = new String(Base64.getUrlDecoder().decode(encodedPayload), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 4) {
+                return null;
+            }
+            AuthTokenClaims claims = new AuthTokenClaims(Long.parseLong(parts[0]), parts[1], Long.parseLong(parts[2]), parts[3]);
+            if (claims.expiresAt() <= Instant.now().getEpochSecond() || isRevoked(claims)) {
+                return null;
+            }
+            return claims;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 吊销令牌（登出）
+     *
+     * @param token 令牌
+     */
+    public void revoke(String token) {
+        AuthTokenClaims claims = parse(token);
+        if (claims == null) {
+            return;
+        }
+        Duration remaining = Duration.ofSeconds(claims.expiresAt() - Instant.now().getEpochSecond());
+        RBloomFilter<String> revokedFilter = getInitializedRevokedFilter(claims.expiresAt());
+        revokedFilter.add(claims.tokenId());
+        stringRedisTemplate.opsForValue().set(REVOKED_KEY_PREFIX + claims.tokenId(), "1", remaining);
+        revocationCache.put(claims.tokenId(), true);
+    }
+
+    /**
+     * 从请求中获取令牌：优先 Authorization 请求头，其次 access_token 参数
+     *
+     * @param request 请求
+     * @return 令牌，没有时返回 null
+     */
+    public String resolveToken(HttpServletRequest request) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String authorization = request.getHeader("Authorization");
+        if (StrUtil.startWith(authorization, BEARER_PREFIX)) {
+            return authorization.substring(BEARER_PREFIX.length()).trim();
+        }
+        return StrUtil.emptyToNull(request.getParameter(TOKEN_PARAM));
+    }
+
+    private boolean isRevoked(AuthTokenClaims claims) {
+        String tokenId = claims.tokenId();
+        Boolean revoked = revocationCache.getIfPresent(tokenId);
+        if (revoked != null) {
+            return revoked;
+        }
+        try {
+            revoked = mayBeRevoked(claims)
+                    && Boolean.TRUE.equals(stringRedisTemplate.hasKey(REVOKED_KEY_PREFIX + tokenId));
+        } catch (Exception e) {
+            // Redis 不可用时不阻断登录态，只记录日志；结果不写入缓存，恢复后立即重新查询
+            log.error("查询令牌吊销状态失败", e);
+            return false;
+        }
+        revocationCache.put(tokenId, revoked);
+        return revoked;
+    }
+
+    /**
+     * 布隆过滤器判断令牌是否可能已吊销，当天没有吊销过令牌时过滤器不存在
+     */
+    private boolean mayBeRevoked(AuthTokenClaims claims) {
+        try {
+            return getRevokedFilter(claims.expiresAt()).contains(claims.tokenId());
+        } catch (IllegalStateException e) {
+            // 过滤器未初始化
+            return false;
+        }
+    }
+
+    /**
+     * 按令牌过期日期划分布隆过滤器，过滤器在当天的令牌全部过期后自动删除
+     */
+    private RBloomFilter<String> getRevokedFilter(long expiresAt) {
+        return revokedFilterCache.get(toExpireDay(expiresAt),
+                expireDay -> redissonClient.getBloomFilter(REVOKED_FILTER_KEY_PREFIX + expireDay.format(DAY_FORMATTER)));
+    }
+
+    /**
+     * 获取布隆过滤器，不存在时初始化，只在吊销令牌时使用
+     */
+    private RBloomFilter<String> getInitializedRevokedFilter(long expiresAt) {
+        LocalDate expireDay = toExpireDay(expiresAt);
+        RBloomFilter<String> revokedFilter = getRevokedFilter(expiresAt);
+        if (initializedFilterDays.contains(expireDay)) {
+            return revokedFilter;
+        }
+        if (revokedFilter.tryInit(REVOKED_FILTER_EXPECTED_INSERTIONS, REVOKED_FILTER_FALSE_PROBABILITY)) {
+            revokedFilter.expire(expireDay.plusDays(2).atStartOfDay(ZoneOffset.UTC).toInstant());
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        initializedFilterDays.removeIf(day -> day.isBefore(today));
+        initializedFilterDays.add(expireDay);
+        return revokedFilter;
+    }
+
+    private LocalDate toExpireDay(long expiresAt) {
+        return Instant.ofEpochSecond(expiresAt).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private byte[] sign(String encodedPayload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac.doFinal(encodedPayload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "令牌签名失败");
+        }
+    }
+
+    private String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * 令牌信息
+     *
+     * @param userId    用户 id
+     * @param userRole  用户角色
+     * @param expiresAt 过期时间（秒级时间戳）
+     * @param tokenId   令牌 id
+     */
+    public record AuthTokenClaims(long userId, String userRole, long expiresAt, String tokenId) {
+    }
+}
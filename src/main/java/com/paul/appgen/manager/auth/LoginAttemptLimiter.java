@@ -0,0 +1,100 @@
+package com.paul.appgen.manager.auth;
+
+import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.exception.ThrowUtils;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 登录失败次数限制
+ * 按账号和 IP 分别统计时间窗口内的失败次数，超过阈值后在查库和计算哈希之前直接拒绝
+ */
+@Slf4j
+@Component
+public class LoginAttemptLimiter {
+
+    private static final String ACCOUNT_KEY_PREFIX = "login:attempt:account:";
+
+    private static final String IP_KEY_PREFIX = "login:attempt:ip:";
+
+    /**
+     * 统计窗口
+     */
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+
+    /**
+     * 单个账号在窗口内允许的失败次数
+     */
+    private static final int MAX_ACCOUNT_FAILURES = 5;
+
+    /**
+     * 单个 IP 在窗口内允许的失败次数
+     */
+    private static final int MAX_IP_FAILURES = 30;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 校验是否允许尝试登录，超过限制时抛出请求过于频繁异常
+     *
+     * @param userAccount 账号
+     * @param ip          客户端 IP
+     */
+    public void checkAllowed(String userAccount, String ip) {
+        ThrowUtils.throwIf(getCount(ACCOUNT_KEY_PREFIX + userAccount) >= MAX_ACCOUNT_FAILURES,
+                ErrorCode.TOO_MANY_REQUEST, "登录失败次数过多，请稍后再试");
+        ThrowUtils.throwIf(getCount(IP_KEY_PREFIX + ip) >= MAX_IP_FAILURES,
+                ErrorCode.TOO_MANY_REQUEST, "登录失败次数过多，请稍后再试");
+    }
+
+    /**
+     * 记录一次登录失败
+     *
+     * @param userAccount 账号
+     * @param ip          客户端 IP
+     */
+    public void recordFailure(String userAccount, String ip) {
+        increment(ACCOUNT_KEY_PREFIX + userAccount);
+        increment(IP_KEY_PREFIX + ip);
+    }
+
+    /**
+     * 登录成功后清除账号的失败次数
+     *
+     * @param userAccount 账号
+     */
+    public void reset(String userAccount) {
+        stringRedisTemplate.delete(ACCOUNT_KEY_PREFIX + userAccount);
+    }
+
+    /**
+     * 获取客户端 IP
+     * 不直接读取 X-Forwarded-For 等请求头（客户端可以任意伪造），
+     * 部署在反向代理之后时由 server.forward-headers-strategy 只信任内网代理传递的地址
+     *
+     * @param request 请求
+     * @return IP
+     */
+    public String getClientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+
+    private long getCount(String key) {
+        String value = stringRedisTemplate.opsForValue().get(key);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private void increment(String key) {
+        Long count = stringRedisTemplate.opsForValue().increment(key);
+        // 第一次失败时开始计时
+        if (count != null && count == 1) {
+            stringRedisTemplate.expire(key, WINDOW);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.paul.appgen.manager.auth;
+
+import cn.hutool.core.util.StrUtil;
+import com.paul.appgen.exception.BusinessException;
+import com.paul.appgen.exception.ErrorCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.DigestUtils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 密码哈希
+ * 使用 PBKDF2WithHmacSHA256，存储格式为 pbkdf2$迭代次数$盐$哈希（盐和哈希为 Base64）；
+ * 同时兼容旧版固定盐的 MD5 密码，校验通过后由调用方升级为新格式
+ */
+@Slf4j
+public class PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    private static final String FORMAT_PREFIX = "pbkdf2";
+
+    private static final String SEPARATOR = "$";
+
+    private static final int SALT_BYTES = 16;
+
+    private static final int HASH_BITS = 256;
+
+    /**
+     * 旧版 MD5 密码使用的固定盐
+     */
+    private static final String LEGACY_SALT = "like1999";
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /**
+     * 当前使用的迭代次数
+     */
+    @Getter
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * 测量本机的哈希速度，计算单次哈希耗时约为 targetMillis 的迭代次数
+     *
+     * @param targetMillis  目标耗时（毫秒）
+     * @param minIterations 最小迭代次数，机器再慢也不能低于该值
+     * @return 迭代次数
+     */
+    public static int benchmarkIterations(long targetMillis, int minIterations) {
+        int sampleIterations = 20000;
+        byte[] salt = new byte[SALT_BYTES];
+        // 先预热一次，避免 JIT 影响测量结果
+        pbkdf2("benchmark", salt, sampleIterations);
+        long start = System.nanoTime();
+        pbkdf2("benchmark", salt, sampleIterations);
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        long iterations = sampleIterations * targetMillis * 1_000_000L / elapsedNanos;
+        int result = (int) Math.max(minIterations, Math.min(iterations, Integer.MAX_VALUE));
+        log.info("密码哈希基准测试：{} 次迭代耗时 {} ms，目标 {} ms，使用迭代次数 {}",
+                sampleIterations, elapsedNanos / 1_000_000, targetMillis, result);
+        return result;
+    }
+
+    /**
+     * 计算密码哈希
+     *
+     * @param password 明文密码
+     * @return 存储格式的哈希
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        SECURE_RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return String.join(SEPARATOR, FORMAT_PREFIX, String.valueOf(iterations),
+                encoder.encodeToString(salt), encoder.encodeToString(hash));
+    }
+
+    /**
+     * 校验密码
+     *
+     * @param password   明文密码
+     * @param storedHash 存储的哈希（新格式或旧版 MD5）
+     * @return 是否匹配
+     */
+    public boolean verify(String password, String storedHash) {
+        if (password == null || StrUtil.isBlank(storedHash)) {
+            return false;
+        }
+        if (!storedHash.startsWith(FORMAT_PREFIX + SEPARATOR)) {
+            String legacyHash = DigestUtils.md5DigestAsHex((LEGACY_SALT + password + LEGACY_SALT).getBytes(StandardCharsets.UTF_8));
+            return MessageDigest.isEqual(legacyHash.getBytes(StandardCharsets.UTF_8), storedHash.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] salt = decoder.decode(parts[2]);
+            byte[] expectedHash = decoder.decode(parts[3]);
+            return MessageDigest.isEqual(expectedHash, pbkdf2(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            log.warn("无法解析的密码哈希格式");
+            return false;
+        }
+    }
+
+    /**
+     * 是否需要用当前参数重新哈希（旧版 MD5 或迭代次数低于当前配置）
+     *
+     * @param storedHash 存储的哈希
+     * @return 是否需要升级
+     */
+    public boolean needsRehash(String storedHash) {
+        if (StrUtil.isBlank(storedHash) || !storedHash.startsWith(FORMAT_PREFIX + SEPARATOR)) {
+            return true;
+        }
+        String[] parts = storedHash.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(keySpec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "密码哈希失败");
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+}
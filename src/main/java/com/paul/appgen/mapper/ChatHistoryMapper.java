@@ -2,6 +2,10 @@ package com.paul.appgen.mapper;
 
 import com.mybatisflex.core.BaseMapper;
 import com.paul.appgen.model.entity.ChatHistory;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 对话历史 映射层。
@@ -10,4 +14,33 @@ import com.paul.appgen.model.entity.ChatHistory;
  */
 public interface ChatHistoryMapper extends BaseMapper<ChatHistory> {
 
+    /**
+     * 查询最后一条消息早于指定时间的应用（冷会话），按应用ID升序分页
+     *
+     * @param before     时间界限
+     * @param afterAppId 只查询大于该ID的应用
+     * @param limit      最大数量
+     * @return 应用ID列表
+     */
+    List<Long> listColdAppIds(@Param("before") LocalDateTime before, @Param("afterAppId") long afterAppId,
+                              @Param("limit") int limit);
+
+    /**
+     * 物理删除逻辑删除时间早于指定时间的记录
+     *
+     * @param before 时间界限
+     * @param limit  单次最大删除数量
+     * @return 删除数量
+     */
+    int purgeDeletedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 物理删除应用的对话历史（包含已逻辑删除的），单次最多删除 limit 条
+     *
+     * @param appId 应用ID
+     * @param limit 单次最大删除数量
+     * @return 删除数量
+     */
+    int deleteByAppIdLimit(@Param("appId") Long appId, @Param("limit") int limit);
+
 }
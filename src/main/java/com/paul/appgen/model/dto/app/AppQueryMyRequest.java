@@ -53,5 +53,10 @@ public class AppQueryMyRequest extends PageRequest implements Serializable {
      */
     private Long userId;
 
+    /**
+     * 搜索关键字，在应用名称和初始化 prompt 中全文检索，未指定排序时按相关度排序
+     */
+    private String searchText;
+
     private static final long serialVersionUID = 1L;
 }
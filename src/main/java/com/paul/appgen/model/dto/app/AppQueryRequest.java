@@ -50,5 +50,15 @@ public class AppQueryRequest extends PageRequest implements Serializable {
      */
     private Long userId;
 
+    /**
+     * 搜索关键字，在应用名称和初始化 prompt 中全文检索，未指定排序时按相关度排序
+     */
+    private String searchText;
+
+    /**
+     * 游标分页：上一页最后一条记录的 id（仅按 id 排序时可用，不能与全文检索的相关度排序同时使用，传入时固定查询第一页）
+     */
+    private Long lastId;
+
     private static final long serialVersionUID = 1L;
 }
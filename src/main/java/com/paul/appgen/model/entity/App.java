@@ -108,4 +108,10 @@ public class App implements Serializable {
     @Column(value = "isDelete", isLogicDelete = true)
     private Integer isDelete;
 
+    /**
+     * 删除后关联数据清理完成时间，为空表示未清理完成
+     */
+    @Column("cleanedTime")
+    private LocalDateTime cleanedTime;
+
 }
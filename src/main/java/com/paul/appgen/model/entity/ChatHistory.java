@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 
 import java.io.Serial;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.mybatisflex.core.keygen.KeyGenerators;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -41,6 +42,20 @@ public class ChatHistory implements Serializable {
      */
     private String message;
 
+    /**
+     * 压缩后的消息，超过压缩阈值时使用，此时 message 为空
+     */
+    @JsonIgnore
+    @Column("messageZip")
+    private byte[] messageZip;
+
+    /**
+     * 消息编码：0-明文 1-deflate
+     */
+    @JsonIgnore
+    @Column("messageCodec")
+    private Integer messageCodec;
+
     /**
      * user/ai
      */
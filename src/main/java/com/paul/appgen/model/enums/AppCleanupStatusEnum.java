@@ -0,0 +1,43 @@
+package com.paul.appgen.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 应用删除后的清理状态枚举
+ */
+@Getter
+public enum AppCleanupStatusEnum {
+
+    PENDING("等待清理", "pending"),
+    RUNNING("清理中", "running"),
+    SUCCEED("清理完成", "succeed"),
+    FAILED("清理失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    AppCleanupStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static AppCleanupStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (AppCleanupStatusEnum anEnum : AppCleanupStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.paul.appgen.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 对话消息存储编码枚举
+ */
+@Getter
+public enum ChatMessageCodecEnum {
+
+    PLAIN("明文", 0),
+    DEFLATE("Deflate 压缩", 1);
+
+    private final String text;
+
+    private final Integer value;
+
+    ChatMessageCodecEnum(String text, Integer value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static ChatMessageCodecEnum getEnumByValue(Integer value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (ChatMessageCodecEnum anEnum : ChatMessageCodecEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.paul.appgen.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 模型档位枚举
+ */
+@Getter
+public enum ModelTierEnum {
+
+    FAST("快速模型", "fast"),
+    STRONG("强模型", "strong");
+
+    private final String text;
+    private final String value;
+
+    ModelTierEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+}
@@ -0,0 +1,44 @@
+package com.paul.appgen.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 应用删除后的清理进度
+ */
+@Data
+public class AppCleanupProgressVO implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 清理状态：pending/running/succeed/failed
+     */
+    private String status;
+
+    /**
+     * 当前步骤
+     */
+    private String step;
+
+    /**
+     * 已删除的对话历史条数
+     */
+    private Long deletedHistoryCount;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 最后更新时间（毫秒时间戳）
+     */
+    private Long updateTime;
+
+    private static final long serialVersionUID = 1L;
+}
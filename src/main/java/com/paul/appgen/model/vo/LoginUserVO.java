@@ -51,5 +51,10 @@ public class LoginUserVO implements Serializable {
      */
     private LocalDateTime updateTime;
 
+    /**
+     * 登录令牌（开启令牌模式时返回，请求时放在 Authorization: Bearer 请求头中）
+     */
+    private String token;
+
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
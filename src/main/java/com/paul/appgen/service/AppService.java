@@ -3,6 +3,7 @@ package com.paul.appgen.service;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
+import com.paul.appgen.manager.GenerationRunManager;
 import com.paul.appgen.model.dto.app.AppAddRequest;
 import com.paul.appgen.model.dto.app.AppQueryMyRequest;
 import com.paul.appgen.model.dto.app.AppQueryRequest;
@@ -10,6 +11,7 @@ import com.paul.appgen.model.dto.app.AppUpdateMyRequest;
 import com.paul.appgen.model.dto.app.AppUpdateRequest;
 import com.paul.appgen.model.entity.App;
 import com.paul.appgen.model.entity.User;
+import com.paul.appgen.model.vo.AppCleanupProgressVO;
 import com.paul.appgen.model.vo.AppVO;
 import reactor.core.publisher.Flux;
 
@@ -126,7 +128,35 @@ public interface AppService extends IService<App> {
  * @param appId 应用程序的唯一标识符
  * @param message 用户输入的消息内容
  * @param loginUser 当前登录的用户信息
- * @return 返回一个包含生成代码的Flux流，Flux是Reactive编程中的响应式流类型
+ * @return 返回一个包含生成事件的Flux流，取消订阅不会中断生成
  */
-    Flux<String> chatToGenCode(Long appId, String message,User loginUser);
+    Flux<GenerationRunManager.GenerationEvent> chatToGenCode(Long appId, String message,User loginUser);
+
+    /**
+     * 断线重连后从断点续传生成事件，不会重新生成
+     *
+     * @param appId       应用ID
+     * @param lastEventId 客户端最后收到的事件ID
+     * @param loginUser   当前登录用户
+     * @return 断点之后的生成事件流
+     */
+    Flux<GenerationRunManager.GenerationEvent> resumeGenCode(Long appId, String lastEventId, User loginUser);
+
+/**
+ * 查询应用删除后的关联数据清理进度
+ *
+ * @param appId 应用ID
+ * @return 清理进度
+ */
+    AppCleanupProgressVO getCleanupProgress(Long appId);
+
+/**
+ * 获取精选应用分页响应，直接返回缓存中序列化好的 JSON，不查询数据库
+ *
+ * @param appName 应用名称关键字
+ * @param pageNum 页号
+ * @param pageSize 页面大小
+ * @return BaseResponse<Page<AppVO>> 的 JSON
+ */
+    String getGoodAppPageJson(String appName, long pageNum, long pageSize);
 }
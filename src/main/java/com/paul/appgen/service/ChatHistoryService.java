@@ -6,9 +6,10 @@ import com.mybatisflex.core.service.IService;
 import com.paul.appgen.model.dto.chathistory.ChatHistoryQueryRequest;
 import com.paul.appgen.model.entity.ChatHistory;
 import com.paul.appgen.model.entity.User;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.memory.ChatMemory;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 对话历史 服务层。
@@ -27,5 +28,42 @@ public interface ChatHistoryService extends IService<ChatHistory> {
                                                       LocalDateTime lastCreateTime,
                                                       User loginUser);
 
-    public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory,int maxCount);
+    public int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory,int maxCount);
+
+    /**
+     * 按应用ID升序分页查询冷会话的应用ID
+     *
+     * @param before     最后一条消息早于该时间视为冷会话
+     * @param afterAppId 上一页最后一个应用ID，第一页传 0
+     * @param limit      最大数量
+     * @return 应用ID列表
+     */
+    List<Long> listColdAppIds(LocalDateTime before, long afterAppId, int limit);
+
+    /**
+     * 把应用在数据库中的对话历史迁移到归档
+     *
+     * @param appId 应用ID
+     * @return 归档的消息数
+     */
+    int archiveByAppId(Long appId);
+
+    /**
+     * 物理清理逻辑删除已久的对话历史
+     *
+     * @param before    逻辑删除早于该时间的记录会被清理
+     * @param batchSize 单次最大清理数量
+     * @return 清理数量
+     */
+    int purgeDeletedHistory(LocalDateTime before, int batchSize);
+
+    /**
+     * 物理删除应用的一批对话历史，调用方循环调用直到返回值小于 batchSize，
+     * 每批单独提交，避免长时间持有行锁
+     *
+     * @param appId     应用ID
+     * @param batchSize 单批删除数量
+     * @return 本批删除数量
+     */
+    int deleteBatchByAppId(Long appId, int batchSize);
 }
@@ -10,7 +10,9 @@ import com.paul.appgen.model.vo.UserVO;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.net.http.HttpRequest;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户 服务层。
@@ -40,4 +42,7 @@ public interface UserService extends IService<User> {
     List<UserVO> getUserVOList(List<User> userList);
 
     QueryWrapper getQueryWrapper(UserQueryRequest userQueryRequest);
+
+    //批量获取用户（优先读本地缓存），返回 id -> 用户
+    Map<Long, User> getUserMapByIds(Collection<Long> userIds);
 }
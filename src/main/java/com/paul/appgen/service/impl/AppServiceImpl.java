@@ -7,7 +7,9 @@ import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.query.RawQueryColumn;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
+import com.paul.appgen.common.SortFieldPlanner;
 import com.paul.appgen.constant.AppConstant;
 import com.paul.appgen.core.AiCodeGeneratorFacade;
 import com.paul.appgen.core.builder.VueProjectBuilder;
@@ -15,6 +17,9 @@ import com.paul.appgen.core.handler.StreamHandlerExecutor;
 import com.paul.appgen.exception.BusinessException;
 import com.paul.appgen.exception.ErrorCode;
 import com.paul.appgen.exception.ThrowUtils;
+import com.paul.appgen.manager.AppCleanupManager;
+import com.paul.appgen.manager.GenerationRunManager;
+import com.paul.appgen.manager.GoodAppFeedManager;
 import com.paul.appgen.mapper.AppMapper;
 import com.paul.appgen.model.dto.app.AppAddRequest;
 import com.paul.appgen.model.dto.app.AppQueryMyRequest;
@@ -25,6 +30,7 @@ import com.paul.appgen.model.entity.App;
 import com.paul.appgen.model.entity.User;
 import com.paul.appgen.model.enums.ChatHistoryMessageTypeEnum;
 import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import com.paul.appgen.model.vo.AppCleanupProgressVO;
 import com.paul.appgen.model.vo.AppVO;
 import com.paul.appgen.service.AppService;
 import com.paul.appgen.service.ChatHistoryService;
@@ -39,6 +45,9 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -65,6 +74,25 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     @Resource
     private VueProjectBuilder vueProjectBuilder;
 
+    @Resource
+    private AppCleanupManager appCleanupManager;
+
+    @Resource
+    private GoodAppFeedManager goodAppFeedManager;
+
+    @Resource
+    private GenerationRunManager generationRunManager;
+
+    /**
+     * 应用允许排序的字段，均有索引支撑
+     */
+    private static final SortFieldPlanner SORT_FIELD_PLANNER = SortFieldPlanner.of("id", "id", "createTime", "priority");
+
+    /**
+     * 全文检索条件，同时用于相关度排序
+     */
+    private static final String FULL_TEXT_MATCH = "MATCH(appName, initPrompt) AGAINST(? IN NATURAL LANGUAGE MODE)";
+
 
     /**
      * 处理用户生成代码的请求
@@ -73,11 +101,11 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
      * @param appId     应用程序的唯一标识符
      * @param message   用户输入的消息内容
      * @param loginUser 当前登录用户的信息
-     * @return 返回一个Flux<String>类型的响应流，包含生成的代码片段
+     * @return 返回生成事件流，生成在后台进行，取消订阅不会中断生成
      * @throws BusinessException 当请求参数无效或用户无权限时抛出业务异常
      */
     @Override
-    public Flux<String> chatToGenCode(Long appId, String message, User loginUser) {
+    public Flux<GenerationRunManager.GenerationEvent> chatToGenCode(Long appId, String message, User loginUser) {
         // 验证请求参数的有效性，确保appId大于0，message和loginUser不为空
         if (appId <= 0 || message == null || loginUser == null) {
             return Flux.error(new BusinessException(ErrorCode.PARAMS_ERROR, "请求参数为空"));
@@ -98,10 +126,13 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "代码生成类型错误");
         }
-        // 将用户消息添加到聊天历史记录中
-        chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
-        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
-        return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
+        // 同一应用同时只允许一个生成任务，相同消息的重复请求接入正在进行的流
+        return generationRunManager.run(appId, loginUser.getId(), message, () -> {
+            // 将用户消息添加到聊天历史记录中
+            chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
+            Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
+            return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
+        });
         // 调用AI代码生成门面，生成并保存代码，返回代码片段流
 
 //        StringBuilder aiResponseBuilder = new StringBuilder();
@@ -117,6 +148,15 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
 //        });
     }
 
+    @Override
+    public Flux<GenerationRunManager.GenerationEvent> resumeGenCode(Long appId, String lastEventId, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0 || StrUtil.isBlank(lastEventId), ErrorCode.PARAMS_ERROR);
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        ThrowUtils.throwIf(!app.getUserId().equals(loginUser.getId()), ErrorCode.NO_AUTH_ERROR, "无权限");
+        return generationRunManager.resume(appId, lastEventId);
+    }
+
     /**
      * 创建应用的方法
      *
@@ -264,7 +304,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         // 设置新的应用名称和编辑时间
         app.setAppName(appName);
         app.setEditTime(LocalDateTime.now());
-        // 执行更新操作并返回结果
+        // 执行更新操作并返回结果，精选应用改名后在 updateById 中重建精选列表
         return this.updateById(app);
     }
 
@@ -327,6 +367,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             app.setPriority(appUpdateRequest.getPriority());
         }
         app.setEditTime(LocalDateTime.now());
+        // 精选状态变化或精选应用信息变化时在 updateById 中重建精选列表
         return this.updateById(app);
     }
 
@@ -335,26 +376,42 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         if (app == null) {
             return null;
         }
-        AppVO appVO = new AppVO();
-        BeanUtil.copyProperties(app, appVO);
         Long userId = app.getUserId();
-        if (userId != null) {
-            User user = userService.getById(userId);
-            appVO.setUser(userService.getUserVO(user));
-        }
-        return appVO;
+        Map<Long, User> userMap = userId == null ? Map.of() : userService.getUserMapByIds(List.of(userId));
+        return getAppVO(app, userMap);
     }
 
+    /**
+     * 批量封装应用视图，关联的用户只批量查询一次
+     *
+     * @param appList 应用列表
+     * @return 应用视图列表
+     */
     @Override
     public List<AppVO> getAppVOList(List<App> appList) {
         if (CollUtil.isEmpty(appList)) {
             return new ArrayList<>();
         }
+        Set<Long> userIds = appList.stream()
+                .map(App::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, User> userMap = userService.getUserMapByIds(userIds);
         return appList.stream()
-                .map(this::getAppVO)
+                .map(app -> getAppVO(app, userMap))
                 .collect(Collectors.toList());
     }
 
+    private AppVO getAppVO(App app, Map<Long, User> userMap) {
+        AppVO appVO = new AppVO();
+        BeanUtil.copyProperties(app, appVO);
+        Long userId = app.getUserId();
+        if (userId != null) {
+            appVO.setUser(userService.getUserVO(userMap.get(userId)));
+        }
+        return appVO;
+    }
+
     @Override
     public Page<AppVO> getAppVOPage(Page<App> appPage) {
         if (appPage == null) {
@@ -381,7 +438,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         Long userId = appQueryRequest.getUserId();
         String sortField = appQueryRequest.getSortField();
         String sortOrder = appQueryRequest.getSortOrder();
-        return QueryWrapper.create()
+        String searchText = appQueryRequest.getSearchText();
+        QueryWrapper queryWrapper = QueryWrapper.create()
                 .eq("id", id)
                 .eq("codeGenType", codeGenType)
                 .eq("deployKey", deployKey)
@@ -389,8 +447,15 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
                 .eq("userId", userId)
                 .like("appName", appName)
                 .like("cover", cover)
-                .like("initPrompt", initPrompt)
-                .orderBy(sortField, "ascend".equals(sortOrder));
+                .like("initPrompt", initPrompt);
+        Long lastId = appQueryRequest.getLastId();
+        // 相关度排序下 id 游标无法保证翻页不重不漏
+        ThrowUtils.throwIf(lastId != null && StrUtil.isBlank(sortField) && isFullTextSearch(searchText),
+                ErrorCode.PARAMS_ERROR, "全文检索按相关度排序时不支持游标分页");
+        applySearchText(queryWrapper, searchText);
+        SORT_FIELD_PLANNER.applyKeyset(queryWrapper, lastId, sortField, sortOrder);
+        applySort(queryWrapper, sortField, sortOrder, searchText);
+        return queryWrapper;
     }
 
     @Override
@@ -411,7 +476,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
 //        Long userId = appQueryMyRequest.getUserId();
         String sortField = appQueryMyRequest.getSortField();
         String sortOrder = appQueryMyRequest.getSortOrder();
-        return QueryWrapper.create()
+        String searchText = appQueryMyRequest.getSearchText();
+        QueryWrapper queryWrapper = QueryWrapper.create()
                 .eq("id", id)
                 .eq("codeGenType", codeGenType)
                 .eq("deployKey", deployKey)
@@ -419,8 +485,10 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
                 .eq("userId", userId)
                 .like("appName", appName)
                 .like("cover", cover)
-                .like("initPrompt", initPrompt)
-                .orderBy(sortField, "ascend".equals(sortOrder));
+                .like("initPrompt", initPrompt);
+        applySearchText(queryWrapper, searchText);
+        applySort(queryWrapper, sortField, sortOrder, searchText);
+        return queryWrapper;
 //        String appName = appQueryMyRequest.getAppName();
 //        String sortField = appQueryMyRequest.getSortField();
 //        String sortOrder = appQueryMyRequest.getSortOrder();
@@ -438,6 +506,31 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
                 .orderBy("priority", false);
     }
 
+    /**
+     * 更新应用，精选应用的名称、封面、部署信息、精选状态变化时重建精选列表
+     * 所有更新路径（包括部署、控制器直接更新）都经过这里
+     *
+     * @param entity      应用
+     * @param ignoreNulls 是否忽略空值
+     * @return 是否更新成功
+     */
+    @Override
+    public boolean updateById(App entity, boolean ignoreNulls) {
+        boolean result = super.updateById(entity, ignoreNulls);
+        if (result && entity != null && entity.getId() != null
+                && (isGoodApp(entity.getPriority()) || goodAppFeedManager.containsApp(entity.getId()))) {
+            goodAppFeedManager.refresh();
+        }
+        return result;
+    }
+
+    /**
+     * 删除应用
+     * 只同步删除应用记录，对话历史、代码文件和对话记忆交给异步清理任务处理
+     *
+     * @param id 应用ID
+     * @return 是否删除成功
+     */
     @Override
     public boolean removeById(Serializable id) {
         // 检查传入的id是否为null
@@ -448,16 +541,71 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         if (appId <= 0) {
             return false;
         }
-        // 先删除关联的对话历史
-        try {
-            // 调用chatHistoryService的deleteByAppId方法删除该应用ID关联的所有对话历史
-            chatHistoryService.deleteByAppId(appId);
-        } catch (Exception e) {
-            // 捕获并记录删除对话历史时可能出现的异常
-            log.error("删除应用关联的对话历史失败: {}", e.getMessage());
+        // 先查出应用，清理时需要代码生成类型和部署标识
+        App app = this.getById(appId);
+        if (app == null) {
+            return false;
+        }
+        boolean result = super.removeById(id);
+        if (result) {
+            // 关联数据异步清理，不阻塞删除请求
+            appCleanupManager.submit(app);
+            if (isGoodApp(app.getPriority())) {
+                goodAppFeedManager.refresh();
+            }
         }
-        // 调用父类的removeById方法执行实际删除操作
-        return super.removeById(id);
+        return result;
+    }
+
+    @Override
+    public String getGoodAppPageJson(String appName, long pageNum, long pageSize) {
+        ThrowUtils.throwIf(pageNum <= 0 || pageSize <= 0, ErrorCode.PARAMS_ERROR, "分页参数错误");
+        return goodAppFeedManager.getPageResponseJson(appName, pageNum, pageSize);
+    }
+
+    /**
+     * 全文检索应用名称和初始化 prompt
+     * 使用 ngram 全文索引，ngram 分词最小长度为 2，单个字符退化为名称前缀匹配
+     */
+    private void applySearchText(QueryWrapper queryWrapper, String searchText) {
+        if (StrUtil.isBlank(searchText)) {
+            return;
+        }
+        String keyword = searchText.trim();
+        if (!isFullTextSearch(keyword)) {
+            queryWrapper.likeLeft("appName", keyword);
+            return;
+        }
+        queryWrapper.and(FULL_TEXT_MATCH, keyword);
+    }
+
+    /**
+     * 拼接排序条件，全文检索且未指定排序字段时按相关度降序、id 降序排列
+     * （没有 order by 时 MySQL 不保证按相关度返回，加上其他条件或分页后顺序可能变化）
+     */
+    private void applySort(QueryWrapper queryWrapper, String sortField, String sortOrder, String searchText) {
+        if (StrUtil.isBlank(sortField) && isFullTextSearch(searchText)) {
+            queryWrapper.orderBy(new RawQueryColumn(FULL_TEXT_MATCH, searchText.trim()).desc())
+                    .orderBy("id", false);
+            return;
+        }
+        SORT_FIELD_PLANNER.applySort(queryWrapper, sortField, sortOrder);
+    }
+
+    private boolean isFullTextSearch(String searchText) {
+        return StrUtil.isNotBlank(searchText) && searchText.trim().length() >= 2;
+    }
+
+    private boolean isGoodApp(Integer priority) {
+        return priority != null && priority >= AppConstant.GOOD_APP_PRIORITY;
+    }
+
+    @Override
+    public AppCleanupProgressVO getCleanupProgress(Long appId) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "appId 不能为空");
+        AppCleanupProgressVO progressVO = appCleanupManager.getProgress(appId);
+        ThrowUtils.throwIf(progressVO == null, ErrorCode.NOT_FOUND_ERROR, "清理任务不存在或已过期");
+        return progressVO;
     }
 
 }
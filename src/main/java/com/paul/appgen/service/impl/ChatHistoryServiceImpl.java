@@ -1,11 +1,16 @@
 package com.paul.appgen.service.impl;
 
-import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.collection.CollUtil;
 import com.esotericsoftware.minlog.Log;
+import com.mybatisflex.core.logicdelete.LogicDeleteManager;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
+import com.paul.appgen.ai.memory.ChatMemoryHydrator;
+import com.paul.appgen.common.SortFieldPlanner;
 import com.paul.appgen.constant.UserConstant;
+import com.paul.appgen.core.codec.ChatMessageCodec;
+import com.paul.appgen.manager.ChatHistoryArchiveManager;
 import com.paul.appgen.model.entity.User;
 import com.paul.appgen.exception.ErrorCode;
 import com.paul.appgen.exception.ThrowUtils;
@@ -18,13 +23,14 @@ import com.paul.appgen.service.AppService;
 import com.paul.appgen.service.ChatHistoryService;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.memory.ChatMemory;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -40,6 +46,23 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     @Lazy
     private AppService appService;
 
+    @Resource
+    @Lazy
+    private ChatMemoryHydrator chatMemoryHydrator;
+
+    @Resource
+    private ChatHistoryArchiveManager chatHistoryArchiveManager;
+
+    /**
+     * 对话历史只允许按创建时间排序（idx_appId_createTime / idx_createTime）
+     */
+    private static final SortFieldPlanner SORT_FIELD_PLANNER = SortFieldPlanner.of("createTime", "createTime");
+
+    /**
+     * 归档时单次物理删除的记录数
+     */
+    private static final int ARCHIVE_DELETE_BATCH_SIZE = 500;
+
 /**
  * 添加聊天消息
  * @param appId 应用ID
@@ -68,6 +91,8 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                 .userId(userId)
                 .build();
 
+    // 大消息压缩后再保存
+        ChatMessageCodec.encode(chatHistory);
     // 保存聊天历史记录并返回保存结果
         return this.save(chatHistory);
     }
@@ -84,8 +109,11 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR,"应用ID不能为空");
         // 创建查询条件，设置app_id等于传入的appId
         QueryWrapper queryWrapper = QueryWrapper.create().eq("appId", appId);
-        // 执行删除操作并返回结果
-        return this.remove(queryWrapper);
+        // 执行删除操作，并标记该应用的 Redis 记忆需要重建
+        boolean result = this.remove(queryWrapper);
+        chatHistoryArchiveManager.deleteArchive(appId);
+        chatMemoryHydrator.markStale(appId);
+        return result;
     }
 
     /**
@@ -118,13 +146,8 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         if (lastCreateTime != null) {
             queryWrapper.lt("createTime", lastCreateTime);
         }
-        // 排序
-        if (StrUtil.isNotBlank(sortField)) {
-            queryWrapper.orderBy(sortField, "ascend".equals(sortOrder));
-        } else {
-            // 默认按创建时间降序排列
-            queryWrapper.orderBy("createTime", false);
-        }
+        // 排序，默认按创建时间降序排列
+        SORT_FIELD_PLANNER.applySort(queryWrapper, sortField, sortOrder);
         return queryWrapper;
     }
 
@@ -147,11 +170,25 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         queryRequest.setLastCreateTime(lastCreateTime);
         QueryWrapper queryWrapper = this.getQueryWrapper(queryRequest);
         // 查询数据
-        return this.page(Page.of(1, pageSize), queryWrapper);
+        Page<ChatHistory> page = this.page(Page.of(1, pageSize), queryWrapper);
+        page.getRecords().forEach(ChatMessageCodec::decode);
+        // 热数据不足一页时，用归档中更早的记录补齐（归档的记录一定早于库中的记录）
+        if (!chatHistoryArchiveManager.hasArchive(appId)) {
+            return page;
+        }
+        // 总数使用归档时记录的条数，只有需要补齐时才读取归档文件
+        if (page.getRecords().size() < pageSize) {
+            List<ChatHistory> records = new ArrayList<>(page.getRecords());
+            LocalDateTime archiveCursor = records.isEmpty() ? lastCreateTime : records.getLast().getCreateTime();
+            records.addAll(chatHistoryArchiveManager.readArchiveBefore(appId, archiveCursor, pageSize - records.size()));
+            page.setRecords(records);
+        }
+        page.setTotalRow(page.getTotalRow() + chatHistoryArchiveManager.getArchivedCount(appId));
+        return page;
     }
 
     @Override
-    public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory,int maxCount){
+    public int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory,int maxCount){
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID不能为空");
         ThrowUtils.throwIf(chatMemory == null, ErrorCode.PARAMS_ERROR, "聊天内存对象不能为空");
         try {
@@ -159,14 +196,20 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                     .eq(ChatHistory::getAppId,appId)
                     .orderBy(ChatHistory::getCreateTime,false)
                     .limit(0, maxCount);
-            List<ChatHistory> chatHistoryList = this.list(queryWrapper);
-            if(chatHistoryList == null || chatHistoryList.isEmpty()){
+            List<ChatHistory> chatHistoryList = new ArrayList<>(this.list(queryWrapper));
+            // 库中的记录不足时，从归档中补齐更早的记录
+            if (chatHistoryList.size() < maxCount && chatHistoryArchiveManager.hasArchive(appId)) {
+                LocalDateTime archiveCursor = chatHistoryList.isEmpty() ? null : chatHistoryList.getLast().getCreateTime();
+                chatHistoryList.addAll(chatHistoryArchiveManager.readArchiveBefore(appId, archiveCursor, maxCount - chatHistoryList.size()));
+            }
+            if(chatHistoryList.isEmpty()){
                 return 0;
             }
             chatHistoryList = chatHistoryList.reversed();
             int loadedCount = 0;
             chatMemory.clear();
             for (ChatHistory chatHistory : chatHistoryList) {
+                ChatMessageCodec.decode(chatHistory);
                 if(ChatHistoryMessageTypeEnum.USER.getValue().equals(chatHistory.getMessageType())){
                     chatMemory.add(UserMessage.from(chatHistory.getMessage()));
                 } else if(ChatHistoryMessageTypeEnum.AI.getValue().equals(chatHistory.getMessageType())){
@@ -182,4 +225,44 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         }
     }
 
+    @Override
+    public List<Long> listColdAppIds(LocalDateTime before, long afterAppId, int limit) {
+        return this.mapper.listColdAppIds(before, afterAppId, limit);
+    }
+
+    /**
+     * 先写归档再删除库中记录，中途失败时重复归档会按 id 去重
+     */
+    @Override
+    public int archiveByAppId(Long appId) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID不能为空");
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .eq(ChatHistory::getAppId, appId)
+                .orderBy(ChatHistory::getCreateTime, true);
+        List<ChatHistory> chatHistoryList = this.list(queryWrapper);
+        if (CollUtil.isEmpty(chatHistoryList)) {
+            return 0;
+        }
+        // 归档文件整体压缩，记录以明文写入
+        chatHistoryList.forEach(ChatMessageCodec::decode);
+        chatHistoryArchiveManager.appendToArchive(appId, chatHistoryList);
+        List<Long> ids = chatHistoryList.stream().map(ChatHistory::getId).toList();
+        // 归档后物理删除，逻辑删除只会让表继续膨胀
+        for (List<Long> batchIds : CollUtil.split(ids, ARCHIVE_DELETE_BATCH_SIZE)) {
+            LogicDeleteManager.execWithoutLogicDelete(() -> this.mapper.deleteBatchByIds(batchIds));
+        }
+        return ids.size();
+    }
+
+    @Override
+    public int purgeDeletedHistory(LocalDateTime before, int batchSize) {
+        return this.mapper.purgeDeletedBefore(before, batchSize);
+    }
+
+    @Override
+    public int deleteBatchByAppId(Long appId, int batchSize) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID不能为空");
+        return this.mapper.deleteByAppIdLimit(appId, batchSize);
+    }
+
 }
@@ -3,11 +3,18 @@ package com.paul.appgen.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
+import com.paul.appgen.common.SortFieldPlanner;
 import com.paul.appgen.constant.UserConstant;
 import com.paul.appgen.exception.BusinessException;
 import com.paul.appgen.exception.ErrorCode;
+import com.paul.appgen.manager.GoodAppFeedManager;
+import com.paul.appgen.manager.auth.AuthTokenManager;
+import com.paul.appgen.manager.auth.LoginAttemptLimiter;
+import com.paul.appgen.manager.auth.PasswordHasher;
 import com.paul.appgen.model.dto.user.UserLoginRequest;
 import com.paul.appgen.model.dto.user.UserQueryRequest;
 import com.paul.appgen.model.entity.User;
@@ -16,13 +23,22 @@ import com.paul.appgen.model.enums.UserRoleEnum;
 import com.paul.appgen.model.vo.LoginUserVO;
 import com.paul.appgen.model.vo.UserVO;
 import com.paul.appgen.service.UserService;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.util.DigestUtils;
 
-import java.nio.charset.StandardCharsets;
+import java.io.Serializable;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +49,32 @@ import java.util.stream.Collectors;
 @Service
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService {
 
+    @Resource
+    private PasswordHasher passwordHasher;
+
+    @Resource
+    private LoginAttemptLimiter loginAttemptLimiter;
+
+    @Resource
+    private AuthTokenManager authTokenManager;
+
+    @Resource
+    @Lazy
+    private GoodAppFeedManager goodAppFeedManager;
+
+    /**
+     * 用户本地缓存，过期时间较短，用户更新或删除时主动失效
+     */
+    private final Cache<Long, User> userCache = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(Duration.ofSeconds(30))
+            .build();
+
+    /**
+     * 用户允许排序的字段，均有索引支撑
+     */
+    private static final SortFieldPlanner SORT_FIELD_PLANNER = SortFieldPlanner.of("id", "id", "createTime", "userName");
+
     @Override
     public long userRegister(String userAccount, String userPassword, String checkPassword) {
         // 1.校验参数
@@ -48,22 +90,20 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (!userPassword.equals(checkPassword)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "两次密码不一致");
         }
-        // 2.查询用户名是否已存在
-        QueryWrapper queryWrapper = new QueryWrapper();
-        queryWrapper.eq("userAccount", userAccount);
-        long count = this.mapper.selectCountByQuery(queryWrapper);
-        if (count > 0) {
-            throw new BusinessException(ErrorCode.PARAMS_ERROR, "用户名已存在");
-        }
-        // 3.加密密码
+        // 2.加密密码
         String encryptPassword = getEncryptPassword(userPassword);
-        // 4.注册
+        // 3.注册，账号是否重复由唯一索引 uk_userAccount 保证，不再提前查询
         User user = new User();
         user.setUserAccount(userAccount);
         user.setUserPassword(encryptPassword);
         user.setUserName(userAccount);
         user.setUserRole(UserRoleEnum.USER.getValue());
-        boolean saveResult = this.save(user);
+        boolean saveResult;
+        try {
+            saveResult = this.save(user);
+        } catch (DuplicateKeyException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "用户名已存在");
+        }
         if (!saveResult) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "注册失败");
         }
@@ -72,8 +112,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     @Override
     public String getEncryptPassword(String password) {
-        final String SALT = "like1999";
-        return DigestUtils.md5DigestAsHex((SALT + password + SALT).getBytes(StandardCharsets.UTF_8));
+        return passwordHasher.hash(password);
     }
 
     @Override
@@ -100,42 +139,83 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (userAccount.length() < 4) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "用户名长度过短");
         }
-        // 2.加密
-        String encryptPassword = getEncryptPassword(userPassword);
+        // 2.失败次数过多时直接拒绝，不查库也不计算哈希
+        String clientIp = loginAttemptLimiter.getClientIp(request);
+        loginAttemptLimiter.checkAllowed(userAccount, clientIp);
 
-        // 3.查询用户名是否已存在
+        // 3.只按唯一索引查询账号，再校验密码
         QueryWrapper queryWrapper = new QueryWrapper();
-        queryWrapper.eq("userAccount", userLoginRequest.getUserAccount());
-        queryWrapper.eq("userPassword", encryptPassword);
+        queryWrapper.eq("userAccount", userAccount);
         User user = this.mapper.selectOneByQuery(queryWrapper);
-        if (user == null) {
+        if (user == null || !passwordHasher.verify(userPassword, user.getUserPassword())) {
+            loginAttemptLimiter.recordFailure(userAccount, clientIp);
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "用户不存在或密码错误");
         }
+        loginAttemptLimiter.reset(userAccount);
+        // 旧格式或迭代次数过低的密码，登录成功后升级
+        if (passwordHasher.needsRehash(user.getUserPassword())) {
+            User updateUser = new User();
+            updateUser.setId(user.getId());
+            updateUser.setUserPassword(passwordHasher.hash(userPassword));
+            this.updateById(updateUser);
+        }
 
-        // 4.记录用户登录态
-        request.getSession().setAttribute(UserConstant.USER_LOGIN_STATE, user);
-        return this.getLoginUserVO(user);
+        // 4.记录用户登录态，开启令牌模式时只签发令牌，不再创建 Session
+        LoginUserVO loginUserVO = this.getLoginUserVO(user);
+        if (authTokenManager.isEnabled()) {
+            loginUserVO.setToken(authTokenManager.issue(user));
+        } else {
+            request.getSession().setAttribute(UserConstant.USER_LOGIN_STATE, user);
+        }
+        return loginUserVO;
     }
 
     @Override
     public User getLoginUser(HttpServletRequest httpServletRequest) {
-        //判断是否登录
-        Object userLoginState = httpServletRequest.getSession().getAttribute(UserConstant.USER_LOGIN_STATE);
-        User curUser = (User) userLoginState;
-        if(curUser == null || curUser.getId() == null){
-            throw  new BusinessException(ErrorCode.NOT_LOGIN_ERROR,"未登录");
+        // 同一个请求内只解析一次（拦截器和控制器都会调用）
+        Object requestUser = httpServletRequest.getAttribute(UserConstant.LOGIN_USER_REQUEST_ATTRIBUTE);
+        if (requestUser instanceof User user) {
+            return user;
+        }
+        // 携带令牌时在本地校验，不读取 Session
+        long userId;
+        String token = authTokenManager.resolveToken(httpServletRequest);
+        if (token != null) {
+            AuthTokenManager.AuthTokenClaims claims = authTokenManager.parse(token);
+            if (claims == null) {
+                throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR, "登录已过期");
+            }
+            userId = claims.userId();
+        } else {
+            //判断是否登录
+            Object userLoginState = httpServletRequest.getSession().getAttribute(UserConstant.USER_LOGIN_STATE);
+            User curUser = (User) userLoginState;
+            if(curUser == null || curUser.getId() == null){
+                throw  new BusinessException(ErrorCode.NOT_LOGIN_ERROR,"未登录");
+            }
+            userId = curUser.getId();
         }
-        // 从数据库查询当前用户登录信息
-        long userId = curUser.getId();
-        User user = this.getById(userId);
+        // 从本地缓存获取当前用户信息，未命中时查询数据库
+        User user = userCache.get(userId, this::getById);
         if(user == null){
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR,"未登录");
         }
-        return curUser;
+        httpServletRequest.setAttribute(UserConstant.LOGIN_USER_REQUEST_ATTRIBUTE, user);
+        return user;
     }
 
     @Override
     public boolean userLogout(HttpServletRequest httpServletRequest) {
+        // 令牌模式下吊销令牌
+        String token = authTokenManager.resolveToken(httpServletRequest);
+        if (token != null) {
+            if (authTokenManager.parse(token) == null) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "未登录");
+            }
+            authTokenManager.revoke(token);
+            httpServletRequest.removeAttribute(UserConstant.LOGIN_USER_REQUEST_ATTRIBUTE);
+            return true;
+        }
         //判断是否登录
         Object userLoginState = httpServletRequest.getSession().getAttribute(UserConstant.USER_LOGIN_STATE);
         User curUser = (User) userLoginState;
@@ -143,6 +223,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             throw  new BusinessException(ErrorCode.OPERATION_ERROR,"未登录");
         }
         httpServletRequest.getSession().removeAttribute(UserConstant.USER_LOGIN_STATE);
+        httpServletRequest.removeAttribute(UserConstant.LOGIN_USER_REQUEST_ATTRIBUTE);
         return true;
     }
 
@@ -178,12 +259,50 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         String userRole = userQueryRequest.getUserRole();
         String sortField = userQueryRequest.getSortField();
         String sortOrder = userQueryRequest.getSortOrder();
-        return QueryWrapper.create()
+        QueryWrapper queryWrapper = QueryWrapper.create()
                 .eq("id", id) // where id = ${id}
                 .eq("userRole", userRole) // and userRole = ${userRole}
                 .like("userAccount", userAccount)
                 .like("userName", userName)
-                .like("userProfile", userProfile)
-                .orderBy(sortField, "ascend".equals(sortOrder));
+                .like("userProfile", userProfile);
+        SORT_FIELD_PLANNER.applySort(queryWrapper, sortField, sortOrder);
+        return queryWrapper;
+    }
+
+    @Override
+    public Map<Long, User> getUserMapByIds(Collection<Long> userIds) {
+        if (CollUtil.isEmpty(userIds)) {
+            return new HashMap<>();
+        }
+        Set<Long> distinctIds = userIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        // 缓存未命中的用户一次性批量查询
+        return userCache.getAll(distinctIds, missingIds -> this.listByIds(missingIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity())));
+    }
+
+    @Override
+    public boolean updateById(User entity, boolean ignoreNulls) {
+        boolean result = super.updateById(entity, ignoreNulls);
+        if (entity != null && entity.getId() != null) {
+            userCache.invalidate(entity.getId());
+            // 精选列表中包含作者的名称和头像
+            if (result && (entity.getUserName() != null || entity.getUserAvatar() != null
+                    || entity.getUserProfile() != null || entity.getUserRole() != null)) {
+                goodAppFeedManager.refreshIfOwnedBy(entity.getId());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        if (id != null) {
+            userCache.invalidate(Long.valueOf(id.toString()));
+            if (result) {
+                goodAppFeedManager.refreshIfOwnedBy(Long.valueOf(id.toString()));
+            }
+        }
+        return result;
     }
 }
@@ -2,6 +2,7 @@ package com.paul.appgen.ai;
 
 import com.paul.appgen.ai.model.HtmlCodeResult;
 import com.paul.appgen.ai.model.MultiFileCodeResult;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
 import jakarta.annotation.Resource;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -11,16 +12,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 public class AiCodeGeneratorServiceTest {
 
     @Resource
-    private AiCodeGeneratorService aiCodeGeneratorService;
+    private AiCodeGeneratorFactory aiCodeGeneratorFactory;
 
     @Test
     void generateHTMLCode(){
-        HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode("做一个个人博客，不超过20行");
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorFactory.getAiCodeGeneratorService(1L, CodeGenTypeEnum.HTML);
+        HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(1L, "做一个个人博客，不超过20行");
         Assertions.assertNotNull(result);
     }
     @Test
     void generateMultiFileCode(){
-        MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode("做一个留言板，不超过50行");
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorFactory.getAiCodeGeneratorService(1L, CodeGenTypeEnum.MULTI_FILE);
+        MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(1L, "做一个留言板，不超过50行");
         Assertions.assertNotNull(result);
     }
 }
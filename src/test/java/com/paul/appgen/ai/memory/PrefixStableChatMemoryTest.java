@@ -0,0 +1,109 @@
+package com.paul.appgen.ai.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixStableChatMemoryTest {
+
+    @Test
+    void prefixStaysStableBetweenBlockEvictions() {
+        PrefixStableChatMemory chatMemory = new PrefixStableChatMemory(1L, new InMemoryChatMemoryStore(), 10, 2, 4);
+        chatMemory.add(SystemMessage.from("system"));
+        for (int i = 0; i < 10; i++) {
+            chatMemory.add(UserMessage.from("user" + i));
+        }
+        List<ChatMessage> beforeEviction = chatMemory.messages();
+        assertEquals(11, beforeEviction.size());
+
+        // 超过上限时一次淘汰一整块，系统消息和最早两条消息保留
+        chatMemory.add(UserMessage.from("user10"));
+        List<ChatMessage> afterEviction = chatMemory.messages();
+        assertEquals(8, afterEviction.size());
+        assertEquals(SystemMessage.from("system"), afterEviction.get(0));
+        assertEquals(UserMessage.from("user0"), afterEviction.get(1));
+        assertEquals(UserMessage.from("user1"), afterEviction.get(2));
+        assertEquals(UserMessage.from("user6"), afterEviction.get(3));
+
+        // 下一次淘汰前，新消息只追加在末尾，前缀不变
+        chatMemory.add(UserMessage.from("user11"));
+        assertEquals(afterEviction, chatMemory.messages().subList(0, afterEviction.size()));
+    }
+
+    @Test
+    void sameSystemMessageIsNotDuplicated() {
+        PrefixStableChatMemory chatMemory = new PrefixStableChatMemory(1L, new InMemoryChatMemoryStore(), 10, 2, 4);
+        chatMemory.add(SystemMessage.from("system"));
+        chatMemory.add(UserMessage.from("user"));
+        chatMemory.add(SystemMessage.from("system"));
+        assertEquals(2, chatMemory.messages().size());
+
+        chatMemory.add(SystemMessage.from("new system"));
+        assertEquals(SystemMessage.from("new system"), chatMemory.messages().getFirst());
+        assertEquals(2, chatMemory.messages().size());
+    }
+
+    @Test
+    void transientContextIsSentButNotPersisted() {
+        InMemoryChatMemoryStore store = new InMemoryChatMemoryStore();
+        PrefixStableChatMemory chatMemory = new PrefixStableChatMemory(1L, store, 10, 2, 4);
+        String prompt = PrefixStableChatMemory.withTransientContext("计算器", "参考实现");
+        chatMemory.add(UserMessage.from(prompt));
+
+        // 本轮请求（包括工具调用后的请求）带参考资料，记忆中只保存原始消息
+        chatMemory.add(AiMessage.from("ai"));
+        assertEquals(UserMessage.from(prompt), chatMemory.messages().getFirst());
+        assertEquals(UserMessage.from("计算器"), store.getMessages(1L).getFirst());
+
+        chatMemory.add(UserMessage.from("改成红色"));
+        assertEquals(UserMessage.from("计算器"), chatMemory.messages().getFirst());
+    }
+
+    @Test
+    void memoryDoesNotGrowWithFileContentsAcrossEditTurns() {
+        InMemoryChatMemoryStore store = new InMemoryChatMemoryStore();
+        PrefixStableChatMemory chatMemory = new PrefixStableChatMemory(1L, store, 20, 2, 8);
+        String files = "index.html\n```html\n" + "<div></div>".repeat(1000) + "\n```\n";
+        for (int i = 0; i < 5; i++) {
+            chatMemory.add(UserMessage.from(PrefixStableChatMemory.withTransientContext("修改" + i, files)));
+            // 本轮请求中只有最后一条用户消息带文件内容
+            long requestsWithFiles = chatMemory.messages().stream()
+                    .filter(message -> message instanceof UserMessage userMessage && userMessage.singleText().contains(files))
+                    .count();
+            assertEquals(1, requestsWithFiles);
+            chatMemory.add(AiMessage.from("patch" + i));
+        }
+
+        List<ChatMessage> persisted = store.getMessages(1L);
+        assertEquals(10, persisted.size());
+        assertEquals(UserMessage.from("修改4"), persisted.get(8));
+        assertTrue(persisted.stream().noneMatch(message -> message.toString().contains("<div></div>")));
+    }
+
+    @Test
+    void orphanToolResultsAreEvicted() {
+        PrefixStableChatMemory chatMemory = new PrefixStableChatMemory(1L, new InMemoryChatMemoryStore(), 6, 2, 2);
+        ToolExecutionRequest request = ToolExecutionRequest.builder().id("1").name("writeFile").arguments("{}").build();
+        chatMemory.add(UserMessage.from("user0"));
+        chatMemory.add(AiMessage.from("ai0"));
+        chatMemory.add(UserMessage.from("user1"));
+        chatMemory.add(AiMessage.from(request));
+        chatMemory.add(ToolExecutionResultMessage.from(request, "ok"));
+        chatMemory.add(AiMessage.from("ai1"));
+        chatMemory.add(UserMessage.from("user2"));
+
+        // 淘汰 user1 和工具调用请求后，对应的工具执行结果也被移除
+        List<ChatMessage> messages = chatMemory.messages();
+        assertEquals(List.of(UserMessage.from("user0"), AiMessage.from("ai0"), AiMessage.from("ai1"), UserMessage.from("user2")),
+                messages);
+    }
+}
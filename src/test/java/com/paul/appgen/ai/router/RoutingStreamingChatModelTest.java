@@ -0,0 +1,131 @@
+package com.paul.appgen.ai.router;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingStreamingChatModelTest {
+
+    @Test
+    void hedgesWhenFirstTokenIsSlow() throws Exception {
+        RoutingStreamingChatModel router = new RoutingStreamingChatModel(List.of(
+                new RoutingStreamingChatModel.RoutedEndpoint("slow", new FakeStreamingChatModel("slow", 2000, false)),
+                new RoutingStreamingChatModel.RoutedEndpoint("fast", new FakeStreamingChatModel("fast", 10, false))),
+                Duration.ofMillis(100), 0.3, 0.5, Duration.ofSeconds(30));
+
+        assertEquals("fast", chat(router));
+        router.shutdown();
+    }
+
+    @Test
+    void doesNotHedgeWithoutHedgeDelay() throws Exception {
+        RoutingStreamingChatModel router = new RoutingStreamingChatModel(List.of(
+                new RoutingStreamingChatModel.RoutedEndpoint("slow", new FakeStreamingChatModel("slow", 300, false)),
+                new RoutingStreamingChatModel.RoutedEndpoint("fast", new FakeStreamingChatModel("fast", 10, false))),
+                null, 0.3, 0.5, Duration.ofSeconds(30));
+
+        assertEquals("slow", chat(router));
+        router.shutdown();
+    }
+
+    @Test
+    void failsOverWhenEndpointErrorsBeforeFirstToken() throws Exception {
+        RoutingStreamingChatModel router = new RoutingStreamingChatModel(List.of(
+                new RoutingStreamingChatModel.RoutedEndpoint("broken", new FakeStreamingChatModel("broken", 0, true)),
+                new RoutingStreamingChatModel.RoutedEndpoint("ok", new FakeStreamingChatModel("ok", 10, false))),
+                Duration.ofSeconds(10), 0.3, 0.2, Duration.ofSeconds(30));
+
+        assertEquals("ok", chat(router));
+        // 错误率超过上限后进入冷却，排到后面
+        RoutingStreamingChatModel.EndpointSnapshot last = router.snapshot().getLast();
+        assertEquals("broken", last.name());
+        assertTrue(last.coolingDown());
+        router.shutdown();
+    }
+
+    @Test
+    void prefersFastestEndpoint() throws Exception {
+        RoutingStreamingChatModel router = new RoutingStreamingChatModel(List.of(
+                new RoutingStreamingChatModel.RoutedEndpoint("slow", new FakeStreamingChatModel("slow", 200, false)),
+                new RoutingStreamingChatModel.RoutedEndpoint("fast", new FakeStreamingChatModel("fast", 10, false))),
+                Duration.ofSeconds(10), 0.3, 0.5, Duration.ofSeconds(30));
+
+        // 没有统计数据时按配置顺序，第一次请求后第二个服务商仍未探测，优先尝试
+        assertEquals("slow", chat(router));
+        assertEquals("fast", chat(router));
+        assertEquals("fast", chat(router));
+        assertEquals("fast", router.snapshot().getFirst().name());
+        router.shutdown();
+    }
+
+    @Test
+    void reportsErrorWhenAllEndpointsFail() {
+        RoutingStreamingChatModel router = new RoutingStreamingChatModel(List.of(
+                new RoutingStreamingChatModel.RoutedEndpoint("a", new FakeStreamingChatModel("a", 0, true)),
+                new RoutingStreamingChatModel.RoutedEndpoint("b", new FakeStreamingChatModel("b", 0, true))),
+                Duration.ofSeconds(10), 0.3, 0.5, Duration.ofSeconds(30));
+
+        Exception exception = assertThrows(Exception.class, () -> chat(router));
+        assertTrue(exception.getCause().getMessage().contains("failed"));
+        router.shutdown();
+    }
+
+    private String chat(RoutingStreamingChatModel router) throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        StringBuilder text = new StringBuilder();
+        router.chat(ChatRequest.builder().messages(UserMessage.from("hello")).build(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                text.append(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                assertEquals(text.toString(), completeResponse.aiMessage().text());
+                result.complete(text.toString());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 等待指定时间后逐字返回自己的名称，或者直接失败
+     */
+    private record FakeStreamingChatModel(String name, long firstTokenDelayMillis, boolean fail) implements StreamingChatModel {
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            Thread.ofVirtual().start(() -> {
+                if (fail) {
+                    handler.onError(new RuntimeException(name + " failed"));
+                    return;
+                }
+                try {
+                    Thread.sleep(firstTokenDelayMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (char c : name.toCharArray()) {
+                    handler.onPartialResponse(String.valueOf(c));
+                }
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(name)).build());
+            });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.paul.appgen.ai.tier;
+
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import com.paul.appgen.model.enums.ModelTierEnum;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeuristicModelTierClassifierTest {
+
+    private final HeuristicModelTierClassifier classifier = new HeuristicModelTierClassifier(120, false);
+
+    @Test
+    void smallEditUsesFastModel() {
+        ModelTierClassifier.TierDecision decision = classify(CodeGenTypeEnum.HTML, "把按钮颜色改成蓝色", false);
+        assertEquals(ModelTierEnum.FAST, decision.tier());
+        assertEquals("small_edit", decision.reason());
+        assertEquals(ModelTierEnum.FAST, classify(CodeGenTypeEnum.MULTI_FILE, "Change the title font", false).tier());
+    }
+
+    @Test
+    void firstTurnUsesStrongModel() {
+        ModelTierClassifier.TierDecision decision = classify(CodeGenTypeEnum.HTML, "把按钮颜色改成蓝色", true);
+        assertEquals(ModelTierEnum.STRONG, decision.tier());
+        assertEquals("first_turn", decision.reason());
+    }
+
+    @Test
+    void largeChangeUsesStrongModel() {
+        assertEquals("large_change", classify(CodeGenTypeEnum.HTML, "改成一个完整的数据仪表盘", false).reason());
+        assertEquals("long_message", classify(CodeGenTypeEnum.HTML, "改".repeat(121), false).reason());
+        assertEquals("default", classify(CodeGenTypeEnum.HTML, "加一个商品列表", false).reason());
+    }
+
+    @Test
+    void vueProjectUsesStrongModelUnlessAllowed() {
+        assertEquals(ModelTierEnum.STRONG, classify(CodeGenTypeEnum.VUE_PROJECT, "把按钮颜色改成蓝色", false).tier());
+        HeuristicModelTierClassifier vueClassifier = new HeuristicModelTierClassifier(120, true);
+        assertEquals(ModelTierEnum.FAST, vueClassifier.classify(new ModelTierClassifier.TierRequest(
+                1L, CodeGenTypeEnum.VUE_PROJECT, "把按钮颜色改成蓝色", false)).tier());
+    }
+
+    private ModelTierClassifier.TierDecision classify(CodeGenTypeEnum codeGenType, String message, boolean firstTurn) {
+        return classifier.classify(new ModelTierClassifier.TierRequest(1L, codeGenType, message, firstTurn));
+    }
+}
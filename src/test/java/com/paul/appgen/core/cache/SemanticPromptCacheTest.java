@@ -0,0 +1,109 @@
+package com.paul.appgen.core.cache;
+
+import com.paul.appgen.config.SemanticCacheConfig;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemanticPromptCacheTest {
+
+    @Test
+    void samePromptIsServable() {
+        SemanticPromptCache cache = new SemanticPromptCache(new BagOfWordsEmbeddingModel(), 0.95, 0.6, 100);
+        cache.add(CodeGenTypeEnum.HTML, "todo app with dark mode", "key-1");
+
+        SemanticPromptCache.SemanticMatch match = cache.lookup(CodeGenTypeEnum.HTML, "  todo app   with dark mode ");
+        assertNotNull(match);
+        assertEquals("key-1", match.cacheKey());
+        assertTrue(match.servable());
+        assertEquals(1.0, match.similarity(), 1e-4);
+    }
+
+    @Test
+    void similarPromptIsScaffoldOnly() {
+        SemanticPromptCache cache = new SemanticPromptCache(new BagOfWordsEmbeddingModel(), 0.95, 0.6, 100);
+        cache.add(CodeGenTypeEnum.HTML, "todo app with dark mode", "key-1");
+
+        SemanticPromptCache.SemanticMatch match = cache.lookup(CodeGenTypeEnum.HTML, "todo app with dark theme");
+        assertNotNull(match);
+        assertEquals("key-1", match.cacheKey());
+        assertFalse(match.servable());
+        assertEquals(0.8, match.similarity(), 1e-4);
+    }
+
+    @Test
+    void unrelatedPromptOrOtherTypeMisses() {
+        SemanticPromptCache cache = new SemanticPromptCache(new BagOfWordsEmbeddingModel(), 0.95, 0.6, 100);
+        cache.add(CodeGenTypeEnum.HTML, "todo app with dark mode", "key-1");
+
+        assertNull(cache.lookup(CodeGenTypeEnum.HTML, "personal blog about travel"));
+        assertNull(cache.lookup(CodeGenTypeEnum.MULTI_FILE, "todo app with dark mode"));
+    }
+
+    @Test
+    void oldestEntryIsEvicted() {
+        SemanticPromptCache cache = new SemanticPromptCache(new BagOfWordsEmbeddingModel(), 0.95, 0.6, 1);
+        cache.add(CodeGenTypeEnum.HTML, "todo app with dark mode", "key-1");
+        cache.add(CodeGenTypeEnum.HTML, "personal blog about travel", "key-2");
+
+        assertNull(cache.lookup(CodeGenTypeEnum.HTML, "todo app with dark mode"));
+        assertEquals("key-2", cache.lookup(CodeGenTypeEnum.HTML, "personal blog about travel").cacheKey());
+    }
+
+    @Test
+    void disabledWithoutModel() {
+        SemanticPromptCache cache = new SemanticPromptCache(null, 0.95, 0.6, 100);
+        cache.add(CodeGenTypeEnum.HTML, "todo app with dark mode", "key-1");
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.lookup(CodeGenTypeEnum.HTML, "todo app with dark mode"));
+    }
+
+    /**
+     * 默认配置下不同需求的中文提示词互不匹配，既不直接复用，也不作为参考实现
+     */
+    @Test
+    void defaultConfigDoesNotMatchUnrelatedChinesePrompts() {
+        SemanticPromptCache cache = new SemanticCacheConfig().semanticPromptCache();
+        cache.add(CodeGenTypeEnum.HTML, "帮我做一个计算器", "calculator");
+        cache.add(CodeGenTypeEnum.MULTI_FILE, "红色主题待办", "red-todo");
+
+        assertNull(cache.lookup(CodeGenTypeEnum.HTML, "帮我做一个贪吃蛇游戏"));
+        assertNull(cache.lookup(CodeGenTypeEnum.MULTI_FILE, "蓝色主题待办"));
+    }
+
+    /**
+     * 按单词计数的向量模型，每个单词占一个维度，不依赖模型文件
+     */
+    private static class BagOfWordsEmbeddingModel implements EmbeddingModel {
+
+        private static final int DIMENSION = 64;
+
+        private final Map<String, Integer> vocabulary = new HashMap<>();
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            return Response.from(textSegments.stream().map(segment -> embedText(segment.text())).toList());
+        }
+
+        private Embedding embedText(String text) {
+            float[] vector = new float[DIMENSION];
+            for (String word : text.toLowerCase().split(" ")) {
+                int index = vocabulary.computeIfAbsent(word, key -> vocabulary.size());
+                vector[index] += 1;
+            }
+            Embedding embedding = Embedding.from(vector);
+            embedding.normalize();
+            return embedding;
+        }
+    }
+}
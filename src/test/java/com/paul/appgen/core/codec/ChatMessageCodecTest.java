@@ -0,0 +1,34 @@
+package com.paul.appgen.core.codec;
+
+import com.paul.appgen.model.entity.ChatHistory;
+import com.paul.appgen.model.enums.ChatMessageCodecEnum;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatMessageCodecTest {
+
+    @Test
+    void smallMessageStaysPlain() {
+        ChatHistory chatHistory = ChatHistory.builder().message("做一个博客网站").build();
+        ChatMessageCodec.encode(chatHistory);
+        assertEquals("做一个博客网站", chatHistory.getMessage());
+        assertNull(chatHistory.getMessageZip());
+        assertEquals(ChatMessageCodecEnum.PLAIN.getValue(), chatHistory.getMessageCodec());
+    }
+
+    @Test
+    void largeMessageRoundTrip() {
+        String html = "<div class=\"card\">你好，世界</div>\n".repeat(500);
+        ChatHistory chatHistory = ChatHistory.builder().message(html).build();
+        ChatMessageCodec.encode(chatHistory);
+        assertNull(chatHistory.getMessage());
+        assertNotNull(chatHistory.getMessageZip());
+        assertTrue(chatHistory.getMessageZip().length < html.length() / 4);
+        assertEquals(ChatMessageCodecEnum.DEFLATE.getValue(), chatHistory.getMessageCodec());
+
+        ChatMessageCodec.decode(chatHistory);
+        assertEquals(html, chatHistory.getMessage());
+        assertNull(chatHistory.getMessageZip());
+    }
+}
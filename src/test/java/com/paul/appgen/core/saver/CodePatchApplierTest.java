@@ -0,0 +1,95 @@
+package com.paul.appgen.core.saver;
+
+import com.paul.appgen.core.parser.CodePatchParser;
+import com.paul.appgen.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodePatchApplierTest {
+
+    private static final Set<String> MULTI_FILES = Set.of("index.html", "style.css", "script.js");
+
+    private final CodePatchParser parser = new CodePatchParser();
+
+    @TempDir
+    Path baseDir;
+
+    @Test
+    void parseBlocksWithFileNames() {
+        List<CodePatchParser.SearchReplaceBlock> blocks = parser.parseCode("""
+                把按钮改成蓝色：
+
+                **style.css**
+                <<<<<<< SEARCH
+                .btn { color: red; }
+                =======
+                .btn { color: blue; }
+                >>>>>>> REPLACE
+
+                <<<<<<< SEARCH
+                <h1>旧标题</h1>
+                =======
+                <h1>新标题</h1>
+                >>>>>>> REPLACE
+                """);
+
+        assertEquals(2, blocks.size());
+        assertEquals(new CodePatchParser.SearchReplaceBlock("style.css", ".btn { color: red; }", ".btn { color: blue; }"),
+                blocks.get(0));
+        assertNull(blocks.get(1).fileName());
+        assertTrue(CodePatchParser.containsPatch("<<<<<<< SEARCH\na\n=======\nb\n>>>>>>> REPLACE"));
+        assertFalse(CodePatchParser.containsPatch("```html\n<html></html>\n```"));
+    }
+
+    @Test
+    void incompleteBlockIsRejected() {
+        assertThrows(BusinessException.class, () -> parser.parseCode("index.html\n<<<<<<< SEARCH\na\n=======\nb\n"));
+    }
+
+    @Test
+    void applyPatchesAcrossFiles() throws Exception {
+        Files.writeString(baseDir.resolve("index.html"), "<h1>旧标题</h1>\n<button class=\"btn\">提交</button>\n");
+        Files.writeString(baseDir.resolve("style.css"), ".btn { color: red; }\n");
+
+        CodePatchApplier.applyPatches(List.of(
+                new CodePatchParser.SearchReplaceBlock(null, "<h1>旧标题</h1>", "<h1>新标题</h1>"),
+                new CodePatchParser.SearchReplaceBlock("style.css", "color: red;", "color: blue;"),
+                new CodePatchParser.SearchReplaceBlock("script.js", "", "console.log('ok');")
+        ), baseDir, MULTI_FILES);
+
+        assertEquals("<h1>新标题</h1>\n<button class=\"btn\">提交</button>\n", Files.readString(baseDir.resolve("index.html")));
+        assertEquals(".btn { color: blue; }\n", Files.readString(baseDir.resolve("style.css")));
+        assertEquals("console.log('ok');", Files.readString(baseDir.resolve("script.js")));
+        try (var files = Files.list(baseDir)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    void failedBlockLeavesAllFilesUntouched() throws Exception {
+        Files.writeString(baseDir.resolve("index.html"), "<p>a</p>\n<p>a</p>\n");
+        Files.writeString(baseDir.resolve("style.css"), ".btn { color: red; }\n");
+
+        // 第一块可以应用，第二块原内容出现两次
+        assertThrows(BusinessException.class, () -> CodePatchApplier.applyPatches(List.of(
+                new CodePatchParser.SearchReplaceBlock("style.css", "color: red;", "color: blue;"),
+                new CodePatchParser.SearchReplaceBlock("index.html", "<p>a</p>", "<p>b</p>")
+        ), baseDir, MULTI_FILES));
+        assertThrows(BusinessException.class, () -> CodePatchApplier.applyPatches(List.of(
+                new CodePatchParser.SearchReplaceBlock("index.html", "<p>c</p>", "<p>b</p>")
+        ), baseDir, MULTI_FILES));
+        assertThrows(BusinessException.class, () -> CodePatchApplier.applyPatches(List.of(
+                new CodePatchParser.SearchReplaceBlock("../secret.txt", "", "x")
+        ), baseDir, MULTI_FILES));
+
+        assertEquals(".btn { color: red; }\n", Files.readString(baseDir.resolve("style.css")));
+        assertEquals("<p>a</p>\n<p>a</p>\n", Files.readString(baseDir.resolve("index.html")));
+    }
+}
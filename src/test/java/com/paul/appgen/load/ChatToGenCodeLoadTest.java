@@ -0,0 +1,221 @@
+package com.paul.appgen.load;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.paul.appgen.mock.MockOpenAiServer;
+import com.paul.appgen.model.enums.CodeGenTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 代码生成压测：模型替换为本地模拟服务，通过 HTTP 端到端调用 /app/chat/gen/code
+ * 和其他 @SpringBootTest 一样需要本地 MySQL 和 Redis，默认不运行，使用 mvn test -Pload-test 执行。
+ * 参数：-Dload.sessions（并发会话数，默认 200）、-Dload.token-latency-ms（默认 20）、-Dload.jitter-ms（默认 10）
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChatToGenCodeLoadTest {
+
+    private static final int SESSIONS = Integer.getInteger("load.sessions", 200);
+
+    private static final String ACCOUNT = "loadtest";
+
+    private static final String PASSWORD = "loadtest123";
+
+    private static final MockOpenAiServer MOCK_SERVER = startMockServer();
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private static MockOpenAiServer startMockServer() {
+        try {
+            return MockOpenAiServer.builder()
+                    .transcript(MockOpenAiServer.Transcript.fromResource("mock-openai/html-login.json"))
+                    .firstTokenLatency(Duration.ofMillis(300))
+                    .tokenLatency(Duration.ofMillis(Long.getLong("load.token-latency-ms", 20L)))
+                    .jitter(Duration.ofMillis(Long.getLong("load.jitter-ms", 10L)))
+                    .start();
+        } catch (IOException e) {
+            throw new IllegalStateException("启动模拟模型服务失败", e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("langchain4j.open-ai.streaming-chat-model.base-url", MOCK_SERVER::baseUrl);
+        registry.add("langchain4j.open-ai.streaming-chat-model.log-requests", () -> false);
+        registry.add("langchain4j.open-ai.streaming-chat-model.log-responses", () -> false);
+        registry.add("langchain4j.open-ai.chat-model.base-url", MOCK_SERVER::baseUrl);
+        // 压测的是生成链路本身，关闭缓存并放开准入限制
+        registry.add("app.generation.cache.enabled", () -> false);
+        registry.add("app.generation.semantic-cache.enabled", () -> false);
+        registry.add("app.generation.admission.max-concurrent", () -> SESSIONS);
+        registry.add("app.generation.admission.max-concurrent-per-user", () -> SESSIONS);
+        registry.add("app.generation.admission.max-queue-size", () -> SESSIONS);
+        registry.add("app.generation.admission.user-rate", () -> SESSIONS * 10);
+    }
+
+    @AfterAll
+    static void stopMockServer() {
+        MOCK_SERVER.close();
+    }
+
+    @Test
+    void concurrentSessions() throws Exception {
+        login();
+        List<Long> appIds = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            appIds.add(createApp(i));
+        }
+
+        long start = System.nanoTime();
+        List<SessionResult> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<SessionResult>> futures = new ArrayList<>();
+            for (int i = 0; i < SESSIONS; i++) {
+                long appId = appIds.get(i);
+                String message = "生成一个登录页面 #" + i;
+                futures.add(executor.submit(() -> runSession(appId, message)));
+            }
+            for (Future<SessionResult> future : futures) {
+                results.add(future.get());
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        List<SessionResult> succeeded = results.stream().filter(SessionResult::success).toList();
+        List<Long> firstTokenMillis = succeeded.stream().map(SessionResult::firstTokenMillis).sorted().toList();
+        List<Long> totalMillis = succeeded.stream().map(SessionResult::totalMillis).sorted().toList();
+        log.info("压测完成：会话 {}，成功 {}，耗时 {}ms，模型请求 {}", SESSIONS, succeeded.size(), elapsedMillis,
+                MOCK_SERVER.requestCount());
+        log.info("首个事件耗时 p50={}ms p95={}ms p99={}ms", percentile(firstTokenMillis, 50),
+                percentile(firstTokenMillis, 95), percentile(firstTokenMillis, 99));
+        log.info("会话总耗时 p50={}ms p95={}ms p99={}ms", percentile(totalMillis, 50),
+                percentile(totalMillis, 95), percentile(totalMillis, 99));
+        results.stream().filter(result -> !result.success()).limit(5)
+                .forEach(result -> log.warn("失败会话：{}", result.error()));
+
+        assertEquals(SESSIONS, succeeded.size());
+    }
+
+    private SessionResult runSession(long appId, String message) {
+        long start = System.nanoTime();
+        long firstTokenMillis = -1;
+        String event = null;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri("/app/chat/gen/code?appId=" + appId
+                            + "&message=" + URLEncoder.encode(message, StandardCharsets.UTF_8)))
+                    .header("Accept", "text/event-stream")
+                    .timeout(Duration.ofMinutes(5))
+                    .GET()
+                    .build();
+            HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+            if (response.statusCode() != 200) {
+                return SessionResult.failed("HTTP " + response.statusCode());
+            }
+            try (Stream<String> lines = response.body()) {
+                Iterator<String> iterator = lines.iterator();
+                while (iterator.hasNext()) {
+                    String line = iterator.next();
+                    if (line.startsWith("event:")) {
+                        event = line.substring("event:".length()).trim();
+                        if ("business-error".equals(event)) {
+                            return SessionResult.failed(iterator.hasNext() ? iterator.next() : event);
+                        }
+                        if ("done".equals(event)) {
+                            break;
+                        }
+                    } else if (line.startsWith("data:") && event == null && firstTokenMillis < 0) {
+                        firstTokenMillis = (System.nanoTime() - start) / 1_000_000;
+                    } else if (line.isEmpty()) {
+                        event = null;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            return SessionResult.failed(e.toString());
+        }
+        if (!"done".equals(event)) {
+            return SessionResult.failed("未收到 done 事件");
+        }
+        return new SessionResult(true, firstTokenMillis, (System.nanoTime() - start) / 1_000_000, null);
+    }
+
+    private void login() throws Exception {
+        JSONObject account = new JSONObject()
+                .set("userAccount", ACCOUNT)
+                .set("userPassword", PASSWORD)
+                .set("checkPassword", PASSWORD);
+        // 账号已存在时注册失败，直接登录
+        postJson("/user/register", account);
+        JSONObject response = postJson("/user/login", account);
+        assertEquals(0, response.getInt("code"), response.toString());
+    }
+
+    private long createApp(int index) throws Exception {
+        JSONObject response = postJson("/app/add", new JSONObject()
+                .set("appName", "压测应用 " + index)
+                .set("initPrompt", "生成一个登录页面")
+                .set("codeGenType", CodeGenTypeEnum.HTML.getValue()));
+        assertEquals(0, response.getInt("code"), response.toString());
+        return response.getLong("data");
+    }
+
+    private JSONObject postJson(String path, JSONObject body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        return JSONUtil.parseObj(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + port + "/api" + path);
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return -1;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private record SessionResult(boolean success, long firstTokenMillis, long totalMillis, String error) {
+
+        private static SessionResult failed(String error) {
+            return new SessionResult(false, -1, -1, error);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.paul.appgen.manager.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final PasswordHasher passwordHasher = new PasswordHasher(1000);
+
+    @Test
+    void hashAndVerify() {
+        String hash = passwordHasher.hash("12345678");
+        assertTrue(hash.startsWith("pbkdf2$1000$"));
+        assertTrue(passwordHasher.verify("12345678", hash));
+        assertFalse(passwordHasher.verify("87654321", hash));
+        // 每次哈希使用随机盐
+        assertNotEquals(hash, passwordHasher.hash("12345678"));
+        assertFalse(passwordHasher.needsRehash(hash));
+    }
+
+    @Test
+    void verifyLegacyMd5() {
+        // 旧版 md5("like1999" + "12345678" + "like1999")
+        String legacyHash = DigestUtils.md5DigestAsHex("like199912345678like1999".getBytes(StandardCharsets.UTF_8));
+        assertTrue(passwordHasher.verify("12345678", legacyHash));
+        assertFalse(passwordHasher.verify("87654321", legacyHash));
+        assertTrue(passwordHasher.needsRehash(legacyHash));
+    }
+
+    @Test
+    void rehashWhenIterationsIncrease() {
+        String hash = passwordHasher.hash("12345678");
+        PasswordHasher strongerHasher = new PasswordHasher(2000);
+        assertTrue(strongerHasher.verify("12345678", hash));
+        assertTrue(strongerHasher.needsRehash(hash));
+    }
+}
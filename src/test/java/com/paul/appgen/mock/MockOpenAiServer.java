@@ -0,0 +1,342 @@
+package com.paul.appgen.mock;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的 OpenAI 兼容流式服务，用于压测和回归测试
+ * 按 chat completions 的 SSE 协议回放录制的对话：内容增量、工具调用增量（先 id 和名称，再分段参数）、结束原因和 usage。
+ * 每个 token 的延迟和抖动可配置，请求在虚拟线程中处理，单机可以支撑数百个并发流
+ */
+@Slf4j
+public class MockOpenAiServer implements AutoCloseable {
+
+    private static final String CHAT_COMPLETIONS_PATH = "/chat/completions";
+
+    private final HttpServer httpServer;
+
+    private final List<Transcript> transcripts;
+
+    private final Duration firstTokenLatency;
+
+    private final Duration tokenLatency;
+
+    private final Duration jitter;
+
+    private final int chunkChars;
+
+    private final double failureRate;
+
+    private final AtomicInteger nextTranscript = new AtomicInteger();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private MockOpenAiServer(Builder builder) throws IOException {
+        if (builder.transcripts.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一段对话记录");
+        }
+        this.transcripts = List.copyOf(builder.transcripts);
+        this.firstTokenLatency = builder.firstTokenLatency;
+        this.tokenLatency = builder.tokenLatency;
+        this.jitter = builder.jitter;
+        this.chunkChars = builder.chunkChars;
+        this.failureRate = builder.failureRate;
+        this.httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", builder.port), 1024);
+        this.httpServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.httpServer.createContext("/", this::handle);
+        this.httpServer.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return 作为 base-url 配置给模型的地址
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/v1";
+    }
+
+    public long requestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith(CHAT_COMPLETIONS_PATH)) {
+                sendError(exchange, 404, "not found");
+                return;
+            }
+            requestCount.incrementAndGet();
+            String body;
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            JSONObject request = JSONUtil.parseObj(body);
+            if (!request.getBool("stream", false)) {
+                sendError(exchange, 400, "only stream=true is supported");
+                return;
+            }
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                sendError(exchange, 500, "mock failure");
+                return;
+            }
+            Transcript transcript = transcripts.get(Math.floorMod(nextTranscript.getAndIncrement(), transcripts.size()));
+            Turn turn = transcript.turnFor(request.getJSONArray("messages"));
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            streamTurn(exchange.getResponseBody(), request.getStr("model", "mock"), turn, body.length());
+        } catch (IOException e) {
+            // 客户端提前断开
+            log.debug("模拟服务响应中断", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void streamTurn(OutputStream out, String model, Turn turn, int requestChars) throws IOException, InterruptedException {
+        String id = "chatcmpl-mock-" + requestCount.get();
+        int completionTokens = 0;
+        pause(firstTokenLatency);
+        writeChunk(out, id, model, new JSONObject().set("role", "assistant").set("content", ""), null);
+        for (String piece : split(turn.content())) {
+            writeChunk(out, id, model, new JSONObject().set("content", piece), null);
+            completionTokens++;
+            pause(tokenLatency);
+        }
+        for (int i = 0; i < turn.toolCalls().size(); i++) {
+            ToolCall toolCall = turn.toolCalls().get(i);
+            writeChunk(out, id, model, toolCallDelta(i, new JSONObject()
+                    .set("id", toolCall.id())
+                    .set("type", "function")
+                    .set("function", new JSONObject().set("name", toolCall.name()).set("arguments", ""))), null);
+            for (String piece : split(toolCall.arguments())) {
+                writeChunk(out, id, model, toolCallDelta(i, new JSONObject()
+                        .set("function", new JSONObject().set("arguments", piece))), null);
+                completionTokens++;
+                pause(tokenLatency);
+            }
+        }
+        writeChunk(out, id, model, new JSONObject(), turn.toolCalls().isEmpty() ? "stop" : "tool_calls");
+        // 按约 4 个字符一个 token 估算输入
+        int promptTokens = requestChars / 4;
+        JSONObject usage = new JSONObject()
+                .set("prompt_tokens", promptTokens)
+                .set("completion_tokens", completionTokens)
+                .set("total_tokens", promptTokens + completionTokens)
+                .set("prompt_tokens_details", new JSONObject().set("cached_tokens", 0));
+        writeEvent(out, new JSONObject()
+                .set("id", id)
+                .set("object", "chat.completion.chunk")
+                .set("model", model)
+                .set("choices", new JSONArray())
+                .set("usage", usage)
+                .toString());
+        writeEvent(out, "[DONE]");
+    }
+
+    private JSONObject toolCallDelta(int index, JSONObject toolCall) {
+        toolCall.set("index", index);
+        return new JSONObject().set("tool_calls", new JSONArray().set(toolCall));
+    }
+
+    private void writeChunk(OutputStream out, String id, String model, JSONObject delta, String finishReason) throws IOException {
+        JSONObject choice = new JSONObject().set("index", 0).set("delta", delta);
+        if (finishReason != null) {
+            choice.set("finish_reason", finishReason);
+        }
+        writeEvent(out, new JSONObject()
+                .set("id", id)
+                .set("object", "chat.completion.chunk")
+                .set("created", System.currentTimeMillis() / 1000)
+                .set("model", model)
+                .set("choices", new JSONArray().set(choice))
+                .toString());
+    }
+
+    private void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = new JSONObject()
+                .set("error", new JSONObject().set("message", message).set("type", "mock_error"))
+                .toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private List<String> split(String text) {
+        List<String> pieces = new ArrayList<>();
+        if (text == null) {
+            return pieces;
+        }
+        for (int i = 0; i < text.length(); i += chunkChars) {
+            pieces.add(text.substring(i, Math.min(i + chunkChars, text.length())));
+        }
+        return pieces;
+    }
+
+    private void pause(Duration latency) throws InterruptedException {
+        long millis = latency.toMillis();
+        if (!jitter.isZero()) {
+            millis += ThreadLocalRandom.current().nextLong(-jitter.toMillis(), jitter.toMillis() + 1);
+        }
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    /**
+     * 录制的对话，按轮回放：请求中最后一条用户消息之后每有一条助手消息（上一轮的工具调用），就回放下一轮
+     *
+     * @param turns 各轮的输出
+     */
+    public record Transcript(List<Turn> turns) {
+
+        /**
+         * 读取 classpath 下的对话记录，格式：{"turns": [{"content": "...", "toolCalls": [{"id", "name", "arguments"}]}]}
+         *
+         * @param resource 资源路径
+         * @return 对话记录
+         */
+        public static Transcript fromResource(String resource) {
+            JSONObject json = JSONUtil.parseObj(ResourceUtil.readUtf8Str(resource));
+            List<Turn> turns = new ArrayList<>();
+            for (JSONObject turnJson : json.getJSONArray("turns").jsonIter()) {
+                List<ToolCall> toolCalls = new ArrayList<>();
+                JSONArray toolCallsJson = turnJson.getJSONArray("toolCalls");
+                if (toolCallsJson != null) {
+                    for (JSONObject toolCallJson : toolCallsJson.jsonIter()) {
+                        toolCalls.add(new ToolCall(toolCallJson.getStr("id"), toolCallJson.getStr("name"),
+                                toolCallJson.getStr("arguments")));
+                    }
+                }
+                turns.add(new Turn(turnJson.getStr("content", ""), toolCalls));
+            }
+            return new Transcript(turns);
+        }
+
+        public static Transcript ofContent(String content) {
+            return new Transcript(List.of(new Turn(content, List.of())));
+        }
+
+        private Turn turnFor(JSONArray messages) {
+            int assistantMessages = 0;
+            if (messages != null) {
+                for (JSONObject message : messages.jsonIter()) {
+                    String role = message.getStr("role");
+                    if ("user".equals(role)) {
+                        assistantMessages = 0;
+                    } else if ("assistant".equals(role)) {
+                        assistantMessages++;
+                    }
+                }
+            }
+            return turns.get(Math.min(assistantMessages, turns.size() - 1));
+        }
+    }
+
+    public record Turn(String content, List<ToolCall> toolCalls) {
+    }
+
+    public record ToolCall(String id, String name, String arguments) {
+    }
+
+    public static class Builder {
+
+        private final List<Transcript> transcripts = new ArrayList<>();
+
+        private int port = 0;
+
+        private Duration firstTokenLatency = Duration.ZERO;
+
+        private Duration tokenLatency = Duration.ZERO;
+
+        private Duration jitter = Duration.ZERO;
+
+        private int chunkChars = 4;
+
+        private double failureRate = 0;
+
+        /**
+         * 多段对话按请求顺序轮流回放
+         */
+        public Builder transcript(Transcript transcript) {
+            transcripts.add(transcript);
+            return this;
+        }
+
+        /**
+         * 端口，默认随机
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder firstTokenLatency(Duration firstTokenLatency) {
+            this.firstTokenLatency = firstTokenLatency;
+            return this;
+        }
+
+        public Builder tokenLatency(Duration tokenLatency) {
+            this.tokenLatency = tokenLatency;
+            return this;
+        }
+
+        /**
+         * 每次等待在 [-jitter, jitter] 内随机增减
+         */
+        public Builder jitter(Duration jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * 每个 token 的字符数
+         */
+        public Builder chunkChars(int chunkChars) {
+            this.chunkChars = chunkChars;
+            return this;
+        }
+
+        /**
+         * 请求直接返回 500 的比例
+         */
+        public Builder failureRate(double failureRate) {
+            this.failureRate = failureRate;
+            return this;
+        }
+
+        public MockOpenAiServer start() throws IOException {
+            return new MockOpenAiServer(this);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.paul.appgen.mock;
+
+import com.paul.appgen.ai.router.RoutingStreamingChatModel;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MockOpenAiServerTest {
+
+    @Test
+    void streamsContentAndUsage() throws Exception {
+        MockOpenAiServer.Transcript transcript = MockOpenAiServer.Transcript.fromResource("mock-openai/html-login.json");
+        try (MockOpenAiServer server = MockOpenAiServer.builder().transcript(transcript).start()) {
+            StringBuilder text = new StringBuilder();
+            ChatResponse response = chat(model(server), ChatRequest.builder()
+                    .messages(UserMessage.from("生成一个登录页面"))
+                    .build(), text);
+
+            String expected = transcript.turns().getFirst().content();
+            assertEquals(expected, text.toString());
+            assertEquals(expected, response.aiMessage().text());
+            assertTrue(response.tokenUsage().inputTokenCount() > 0);
+            assertEquals((expected.length() + 3) / 4, response.tokenUsage().outputTokenCount());
+        }
+    }
+
+    @Test
+    void streamsToolCallDeltas() throws Exception {
+        MockOpenAiServer.Transcript transcript = MockOpenAiServer.Transcript.fromResource("mock-openai/vue-tool-call.json");
+        try (MockOpenAiServer server = MockOpenAiServer.builder().transcript(transcript).start()) {
+            ChatResponse response = chat(model(server), ChatRequest.builder()
+                    .messages(UserMessage.from("生成一个待办清单"))
+                    .toolSpecifications(ToolSpecification.builder()
+                            .name("writeFile")
+                            .parameters(JsonObjectSchema.builder()
+                                    .addStringProperty("relativeFilePath")
+                                    .addStringProperty("content")
+                                    .build())
+                            .build())
+                    .build(), new StringBuilder());
+
+            List<ToolExecutionRequest> toolExecutionRequests = response.aiMessage().toolExecutionRequests();
+            assertEquals(1, toolExecutionRequests.size());
+            MockOpenAiServer.ToolCall expected = transcript.turns().getFirst().toolCalls().getFirst();
+            assertEquals(expected.id(), toolExecutionRequests.getFirst().id());
+            assertEquals(expected.name(), toolExecutionRequests.getFirst().name());
+            assertEquals(expected.arguments(), toolExecutionRequests.getFirst().arguments());
+        }
+    }
+
+    @Test
+    void routerHedgesToFasterServer() throws Exception {
+        MockOpenAiServer.Transcript transcript = MockOpenAiServer.Transcript.ofContent("hello from mock");
+        try (MockOpenAiServer slow = MockOpenAiServer.builder().transcript(transcript).firstTokenLatency(Duration.ofSeconds(3)).start();
+             MockOpenAiServer fast = MockOpenAiServer.builder().transcript(transcript).start()) {
+            RoutingStreamingChatModel router = new RoutingStreamingChatModel(List.of(
+                    new RoutingStreamingChatModel.RoutedEndpoint("slow", model(slow)),
+                    new RoutingStreamingChatModel.RoutedEndpoint("fast", model(fast))),
+                    Duration.ofMillis(200), 0.3, 0.5, Duration.ofSeconds(30));
+
+            StringBuilder text = new StringBuilder();
+            chat(router, ChatRequest.builder().messages(UserMessage.from("hi")).build(), text);
+
+            assertEquals("hello from mock", text.toString());
+            assertEquals(1, slow.requestCount());
+            assertEquals(1, fast.requestCount());
+            router.shutdown();
+        }
+    }
+
+    private StreamingChatModel model(MockOpenAiServer server) {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey("mock")
+                .modelName("mock")
+                .build();
+    }
+
+    private ChatResponse chat(StreamingChatModel model, ChatRequest chatRequest, StringBuilder text) throws Exception {
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        model.chat(chatRequest, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                text.append(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                result.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result.get(10, TimeUnit.SECONDS);
+    }
+}